@@ -1,13 +1,26 @@
 package lol.notender.ignore;
 
+import lol.notender.ignore.api.IgnoreService;
+import lol.notender.ignore.audit.AuditLog;
 import lol.notender.ignore.commands.IgnoreCommand;
 import lol.notender.ignore.database.DatabaseManager;
+import lol.notender.ignore.database.WriteQueue;
+import lol.notender.ignore.importer.EssentialsImporter;
 import lol.notender.ignore.listeners.ChatListener;
+import lol.notender.ignore.listeners.LastSeenListener;
+import lol.notender.ignore.listeners.PlayerIndexListener;
 import lol.notender.ignore.listeners.WhisperListener;
 import lol.notender.ignore.managers.ConfigManager;
 import lol.notender.ignore.managers.IgnoreManager;
+import lol.notender.ignore.managers.IgnoreReconciler;
+import lol.notender.ignore.managers.IgnoreThrottle;
+import lol.notender.ignore.managers.PlayerNameIndex;
+import lol.notender.ignore.managers.RetentionPurger;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -18,6 +31,12 @@ public final class Ignore extends JavaPlugin {
     private DatabaseManager databaseManager;
     private IgnoreManager ignoreManager;
     private ConfigManager configManager;
+    private PlayerNameIndex nameIndex;
+    private AuditLog auditLog;
+    private WriteQueue writeQueue;
+    private IgnoreReconciler reconciler;
+    private RetentionPurger retentionPurger;
+    private EssentialsImporter essentialsImporter;
 
     @Override
     public void onEnable() {
@@ -25,20 +44,86 @@ public final class Ignore extends JavaPlugin {
             // Initialize configuration
             this.configManager = new ConfigManager(this);
 
+            // Ship the JFR settings for profiling the plugin in production
+            if (!new File(getDataFolder(), "ignore.jfc").exists()) {
+                saveResource("ignore.jfc", false);
+            }
+
             // Initialize database
             this.databaseManager = new DatabaseManager(this);
             this.databaseManager.initialize();
+            if (configManager.isRetentionEnabled()) {
+                getLogger().info("Đang kiểm tra chế độ auto_vacuum của cơ sở dữ liệu...");
+                if (databaseManager.enableIncrementalVacuum()) {
+                    getLogger().info("Đã chuyển cơ sở dữ liệu sang auto_vacuum=INCREMENTAL.");
+                }
+            }
+
+            // Initialize audit log
+            this.auditLog = new AuditLog(this, databaseManager, configManager.isAuditEnabled(),
+                    configManager.getAuditBufferSize(), configManager.getAuditFlushIntervalTicks(),
+                    configManager.getAuditMaxAgeDays(), configManager.getAuditMaxRows());
+            this.auditLog.start();
+
+            // Initialize write-behind queue for ignore changes
+            this.writeQueue = new WriteQueue(this, databaseManager, configManager.getWriteQueueFlushIntervalTicks());
+            this.writeQueue.start();
 
             // Initialize ignore manager
-            this.ignoreManager = new IgnoreManager(databaseManager);
+            IgnoreThrottle throttle = new IgnoreThrottle(configManager.getThrottleCapacity(),
+                    configManager.getThrottleRefillPerSecond());
+            File residentSnapshotFile = configManager.isFullResidencyEnabled()
+                    ? new File(getDataFolder(), "ignoregraph.bin")
+                    : null;
+            this.ignoreManager = new IgnoreManager(databaseManager, auditLog, writeQueue, throttle, residentSnapshotFile);
+            this.ignoreManager.loadOnlinePlayers();
+            if (ignoreManager.isFullResidency()) {
+                getLogger().info("Đã nạp " + ignoreManager.getResidentRelationshipCount() + " bản ghi ignore vào bộ nhớ từ "
+                        + (ignoreManager.isResidentFromSnapshot() ? "tệp snapshot." : "cơ sở dữ liệu."));
+                long foldInterval = Math.max(1, configManager.getFullResidencyFoldIntervalTicks());
+                int foldMinPlayers = configManager.getFullResidencyFoldMinPlayers();
+                getServer().getScheduler().runTaskTimerAsynchronously(this,
+                        () -> ignoreManager.foldResidentOverlay(foldMinPlayers), foldInterval, foldInterval);
+            } else if (residentSnapshotFile != null) {
+                getLogger().warning("Không thể nạp toàn bộ dữ liệu ignore vào bộ nhớ, dùng chế độ đọc từ cơ sở dữ liệu.");
+            }
+
+            // Initialize cache/database reconciler
+            if (configManager.isReconcileEnabled()) {
+                this.reconciler = new IgnoreReconciler(this, databaseManager, ignoreManager,
+                        configManager.getReconcilePlayersPerRun(), configManager.getReconcileMaxRowsPerRun(),
+                        configManager.getReconcileIntervalTicks());
+                this.reconciler.start();
+            }
+
+            // Initialize online player name index
+            this.nameIndex = new PlayerNameIndex();
+            this.nameIndex.indexOnlinePlayers();
+
+            // Initialize retention purge of inactive players' ignore lists
+            if (configManager.isRetentionEnabled()) {
+                this.retentionPurger = new RetentionPurger(this, databaseManager, ignoreManager, nameIndex,
+                        configManager.getRetentionInactiveDays(), configManager.getRetentionBatchSize(),
+                        configManager.getRetentionBatchesPerRun(), configManager.getRetentionVacuumPages(),
+                        configManager.getRetentionIntervalTicks());
+                this.retentionPurger.start();
+            }
+
+            // Expose ignore lookups to other plugins
+            getServer().getServicesManager().register(IgnoreService.class, ignoreManager, this, ServicePriority.Normal);
+
+            this.essentialsImporter = new EssentialsImporter(this, databaseManager, ignoreManager);
 
             // Register command
             Objects.requireNonNull(getCommand("ignore"))
-                    .setExecutor(new IgnoreCommand(ignoreManager));
+                    .setExecutor(new IgnoreCommand(ignoreManager, nameIndex, auditLog,
+                            essentialsImporter, reconciler, retentionPurger));
 
             // Register event listeners
-            getServer().getPluginManager().registerEvents(new ChatListener(ignoreManager), this);
-            getServer().getPluginManager().registerEvents(new WhisperListener(ignoreManager, configManager), this);
+            getServer().getPluginManager().registerEvents(new PlayerIndexListener(nameIndex), this);
+            getServer().getPluginManager().registerEvents(new LastSeenListener(this, databaseManager), this);
+            getServer().getPluginManager().registerEvents(new ChatListener(ignoreManager, nameIndex), this);
+            getServer().getPluginManager().registerEvents(new WhisperListener(ignoreManager, configManager, nameIndex, auditLog), this);
 
             getLogger().info("Ignore Plugin đã được bật!");
         } catch (Exception e) {
@@ -50,6 +135,46 @@ public final class Ignore extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        getServer().getServicesManager().unregisterAll(this);
+
+        if (reconciler != null) {
+            reconciler.stop();
+        }
+
+        if (retentionPurger != null) {
+            retentionPurger.stop();
+        }
+
+        // Let a running import finish its current file before the connection closes
+        if (essentialsImporter != null) {
+            essentialsImporter.stop();
+        }
+
+        // Write out queued ignore changes
+        if (writeQueue != null) {
+            writeQueue.stop();
+        }
+
+        // Save the in-memory ignore graph for a fast next startup, unless an import changed
+        // ignore_list without the graph being reloaded; the watermark would not notice that
+        if (ignoreManager != null && ignoreManager.isFullResidency()) {
+            try {
+                if (essentialsImporter != null
+                        && (essentialsImporter.isRunning() || essentialsImporter.hasUnreloadedRows())) {
+                    ignoreManager.deleteResidentSnapshot();
+                } else {
+                    ignoreManager.saveResidentGraph();
+                }
+            } catch (IOException e) {
+                getLogger().severe("Lỗi khi ghi snapshot dữ liệu ignore: " + e.getMessage());
+            }
+        }
+
+        // Write out buffered audit events
+        if (auditLog != null) {
+            auditLog.stop();
+        }
+
         // Close database connection
         if (databaseManager != null) {
             databaseManager.close();
@@ -77,4 +202,32 @@ public final class Ignore extends JavaPlugin {
     public ConfigManager getConfigManager() {
         return configManager;
     }
+
+    /**
+     * Get the online player name index
+     */
+    public PlayerNameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Get the reconciler instance, or null if disabled
+     */
+    public IgnoreReconciler getReconciler() {
+        return reconciler;
+    }
+
+    /**
+     * Get the retention purger instance, or null if retention is disabled
+     */
+    public RetentionPurger getRetentionPurger() {
+        return retentionPurger;
+    }
+
+    /**
+     * Get the audit log instance
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
 }
\ No newline at end of file
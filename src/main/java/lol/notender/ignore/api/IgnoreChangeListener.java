@@ -0,0 +1,18 @@
+package lol.notender.ignore.api;
+
+import java.util.UUID;
+
+/**
+ * Callback for ignore list changes, see {@link IgnoreService#addChangeListener}
+ */
+@FunctionalInterface
+public interface IgnoreChangeListener {
+
+    /**
+     * Called after a player starts or stops ignoring someone
+     * @param playerUUID The player whose ignore list changed
+     * @param targetUUID The player added to or removed from the list
+     * @param ignoring true if now ignoring, false if unignored
+     */
+    void onIgnoreChanged(UUID playerUUID, UUID targetUUID, boolean ignoring);
+}
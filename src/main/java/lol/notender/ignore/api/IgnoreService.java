@@ -0,0 +1,54 @@
+package lol.notender.ignore.api;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ignore lookups for other plugins (chat channels, parties, mail...).
+ * Registered with Bukkit's ServicesManager; obtain it with
+ * {@code Bukkit.getServicesManager().load(IgnoreService.class)}.
+ * All methods are safe to call from any thread, including async chat threads.
+ */
+public interface IgnoreService {
+
+    /**
+     * Check if a player is ignoring another player
+     * @param playerUUID The player who may be ignoring
+     * @param targetUUID The player who may be ignored
+     */
+    boolean isIgnoring(UUID playerUUID, UUID targetUUID);
+
+    /**
+     * Remove recipients that are ignoring the sender
+     * @param senderUUID The player sending the message
+     * @param recipients Everyone who would receive it
+     * @return the recipients that should still receive it, in the original order
+     */
+    List<UUID> filterRecipients(UUID senderUUID, Collection<UUID> recipients);
+
+    /**
+     * Get the players that are ignoring the sender, among players whose ignore lists are loaded
+     * (every online player once their join has been processed)
+     * @return an immutable set, empty if nobody is ignoring the sender
+     */
+    Set<UUID> ignorersOf(UUID senderUUID);
+
+    /**
+     * Get everyone a player is ignoring
+     * @return an immutable set
+     */
+    Set<UUID> getIgnoredPlayers(UUID playerUUID);
+
+    /**
+     * Register a callback for ignore changes
+     * Callbacks run on the thread that made the change (usually the main thread) and should return quickly
+     */
+    void addChangeListener(IgnoreChangeListener listener);
+
+    /**
+     * Unregister a callback added with {@link #addChangeListener}
+     */
+    void removeChangeListener(IgnoreChangeListener listener);
+}
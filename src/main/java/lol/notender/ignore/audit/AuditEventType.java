@@ -0,0 +1,48 @@
+package lol.notender.ignore.audit;
+
+/**
+ * Kinds of events recorded in the ignore audit log
+ */
+public enum AuditEventType {
+    WHISPER_BLOCKED(1, "chặn tin nhắn riêng"),
+    IGNORE_ADD(2, "ignore"),
+    IGNORE_REMOVE(3, "bỏ ignore");
+
+    private static final AuditEventType[] BY_ID = new AuditEventType[4];
+
+    static {
+        for (AuditEventType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+
+    private final int id;
+    private final String displayName;
+
+    AuditEventType(int id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    /**
+     * Get the stable id stored in the database
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the name shown to moderators
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Look up a type by its database id
+     * @return the type, or null if the id is unknown
+     */
+    public static AuditEventType fromId(int id) {
+        return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+}
@@ -0,0 +1,250 @@
+package lol.notender.ignore.audit;
+
+import lol.notender.ignore.database.DatabaseManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, lock-free audit log for ignore changes and blocked whispers.
+ * Listeners write fixed-size records into preallocated ring slots without allocating;
+ * a background task drains them in batches into the ignore_audit table.
+ * When the ring is full new events are dropped and counted instead of blocking the caller.
+ */
+public class AuditLog {
+
+    // Retention runs a minute after startup and then hourly
+    private static final long PRUNE_DELAY_TICKS = 20L * 60;
+    private static final long PRUNE_INTERVAL_TICKS = 20L * 60 * 60;
+    private static final int PRUNE_BATCH_SIZE = 1000;
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final boolean enabled;
+    private final long flushIntervalTicks;
+
+    // Retention of the ignore_audit table, 0 disables that limit
+    private final long maxAgeMillis;
+    private final int maxRows;
+
+    // Ring slots, one record per index (UUIDs stored as their two halves)
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] types;
+    private final long[] actorMost;
+    private final long[] actorLeast;
+    private final long[] targetMost;
+    private final long[] targetLeast;
+
+    // published[slot] == seq + 1 once the record with sequence seq is fully written
+    private final AtomicLongArray published;
+
+    // Next sequence producers will claim
+    private final AtomicLong head = new AtomicLong();
+
+    // Next sequence the drainer will read; written only by the drainer
+    private volatile long tail;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+
+    private BukkitTask drainTask;
+    private BukkitTask pruneTask;
+
+    public AuditLog(JavaPlugin plugin, DatabaseManager databaseManager, boolean enabled, int bufferSize,
+                    long flushIntervalTicks, int maxAgeDays, int maxRows) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.enabled = enabled;
+        this.flushIntervalTicks = Math.max(1, flushIntervalTicks);
+        this.maxAgeMillis = TimeUnit.DAYS.toMillis(Math.max(0, maxAgeDays));
+        this.maxRows = Math.max(0, maxRows);
+
+        // Round up to a power of two so the slot is a mask instead of a modulo
+        this.capacity = Integer.highestOneBit(Math.max(16, bufferSize) * 2 - 1);
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.types = new int[capacity];
+        this.actorMost = new long[capacity];
+        this.actorLeast = new long[capacity];
+        this.targetMost = new long[capacity];
+        this.targetLeast = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Start the background drainer
+     */
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        drainTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+                plugin, this::drain, flushIntervalTicks, flushIntervalTicks);
+        if (maxAgeMillis > 0 || maxRows > 0) {
+            pruneTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+                    plugin, this::prune, PRUNE_DELAY_TICKS, PRUNE_INTERVAL_TICKS);
+        }
+    }
+
+    /**
+     * Stop the background drainer and write out everything still buffered
+     */
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        if (pruneTask != null) {
+            pruneTask.cancel();
+            pruneTask = null;
+        }
+        drain();
+    }
+
+    /**
+     * Record an event. Safe to call from any thread; never blocks and never allocates.
+     */
+    public void record(AuditEventType type, UUID actorUUID, UUID targetUUID) {
+        if (!enabled) {
+            return;
+        }
+
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail >= capacity) {
+                // Ring is full, the drainer has fallen behind
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+
+        int slot = (int) (seq & mask);
+        timestamps[slot] = System.currentTimeMillis();
+        types[slot] = type.getId();
+        actorMost[slot] = actorUUID.getMostSignificantBits();
+        actorLeast[slot] = actorUUID.getLeastSignificantBits();
+        targetMost[slot] = targetUUID.getMostSignificantBits();
+        targetLeast[slot] = targetUUID.getLeastSignificantBits();
+
+        // Publish after the fields are written; the drainer reads the fields only after seeing this
+        published.lazySet(slot, seq + 1);
+    }
+
+    /**
+     * Move all published records from the ring into the database
+     */
+    private synchronized void drain() {
+        long next = tail;
+        List<AuditRecord> batch = new ArrayList<>();
+
+        while (true) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next + 1) {
+                break;
+            }
+            AuditEventType type = AuditEventType.fromId(types[slot]);
+            if (type != null) {
+                batch.add(new AuditRecord(timestamps[slot], type,
+                        new UUID(actorMost[slot], actorLeast[slot]),
+                        new UUID(targetMost[slot], targetLeast[slot])));
+            }
+            next++;
+        }
+
+        // Release the slots to producers only after they have been copied out
+        tail = next;
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (databaseManager.insertAuditRecords(batch)) {
+            written.add(batch.size());
+        } else {
+            dropped.add(batch.size());
+        }
+    }
+
+    /**
+     * Delete events past the configured age or row cap, in small batches so whisper and
+     * ignore lookups get the connection in between
+     */
+    private void prune() {
+        long cutoff = maxAgeMillis > 0 ? System.currentTimeMillis() - maxAgeMillis : 0;
+        // Once per run, not per batch: finding it walks up to maxRows rows under the database lock
+        long keepFromId = maxRows > 0 ? Math.max(0, databaseManager.findOldestKeptAuditId(maxRows)) : 0;
+        int deleted;
+        do {
+            deleted = databaseManager.pruneAuditRecords(cutoff, keepFromId, PRUNE_BATCH_SIZE);
+            if (deleted > 0) {
+                pruned.add(deleted);
+            }
+        } while (deleted == PRUNE_BATCH_SIZE);
+    }
+
+    /**
+     * Load the most recent audit events from the database off the main thread,
+     * then hand them to the callback on the main thread
+     */
+    public void queryRecent(int limit, Consumer<List<AuditRecord>> callback) {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            // Make sure events still sitting in the ring show up too
+            drain();
+            List<AuditRecord> records = databaseManager.getRecentAuditRecords(limit);
+            plugin.getServer().getScheduler().runTask(plugin, () -> callback.accept(records));
+        });
+    }
+
+    /**
+     * Check if audit logging is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get number of events dropped because the ring was full or the database write failed
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Get number of events deleted from the database by retention
+     */
+    public long getPrunedCount() {
+        return pruned.sum();
+    }
+
+    /**
+     * Get number of events written to the database
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Get number of events waiting in the ring
+     */
+    public int getPendingCount() {
+        return (int) Math.max(0, head.get() - tail);
+    }
+
+    /**
+     * Get the ring capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,13 @@
+package lol.notender.ignore.audit;
+
+import java.util.UUID;
+
+/**
+ * A single audit event, as written to or read back from the database
+ * @param timestamp Epoch milliseconds when the event happened
+ * @param type What happened
+ * @param actorUUID The player who acted (sender of the whisper, owner of the ignore list)
+ * @param targetUUID The player acted upon
+ */
+public record AuditRecord(long timestamp, AuditEventType type, UUID actorUUID, UUID targetUUID) {
+}
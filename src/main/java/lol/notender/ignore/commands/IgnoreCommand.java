@@ -1,7 +1,15 @@
 package lol.notender.ignore.commands;
 
+import lol.notender.ignore.audit.AuditLog;
+import lol.notender.ignore.audit.AuditRecord;
+import lol.notender.ignore.database.WriteQueue;
+import lol.notender.ignore.importer.EssentialsImporter;
+import lol.notender.ignore.managers.IgnoreLeaderboard;
 import lol.notender.ignore.managers.IgnoreManager;
-import org.bukkit.Bukkit;
+import lol.notender.ignore.managers.IgnoreReconciler;
+import lol.notender.ignore.managers.IgnoreThrottle;
+import lol.notender.ignore.managers.PlayerNameIndex;
+import lol.notender.ignore.managers.RetentionPurger;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -10,7 +18,10 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,16 +30,59 @@ import java.util.UUID;
  */
 public class IgnoreCommand implements CommandExecutor, TabCompleter {
 
+    // Upper bound on player names suggested per keystroke
+    private static final int MAX_COMPLETIONS = 100;
+
+    private static final String ADMIN_PERMISSION = "ignore.admin";
+    private static final int DEFAULT_AUDIT_LINES = 10;
+    private static final int MAX_AUDIT_LINES = 100;
+    private static final int DEFAULT_TOP_LINES = 10;
+    private static final int MAX_TOP_LINES = 100;
+
     private final IgnoreManager ignoreManager;
+    private final PlayerNameIndex nameIndex;
+    private final AuditLog auditLog;
+    private final EssentialsImporter essentialsImporter;
+    private final IgnoreReconciler reconciler;
+    private final RetentionPurger retentionPurger;
 
-    public IgnoreCommand(IgnoreManager ignoreManager) {
+    public IgnoreCommand(IgnoreManager ignoreManager, PlayerNameIndex nameIndex, AuditLog auditLog,
+                         EssentialsImporter essentialsImporter, IgnoreReconciler reconciler,
+                         RetentionPurger retentionPurger) {
         this.ignoreManager = ignoreManager;
+        this.nameIndex = nameIndex;
+        this.auditLog = auditLog;
+        this.essentialsImporter = essentialsImporter;
+        this.reconciler = reconciler;
+        this.retentionPurger = retentionPurger;
     }
 
     @Override
     public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command,
                              @NotNull String label, @NotNull String[] args) {
 
+        // Admin sub-commands, also usable from console
+        if (args.length > 0 && sender.hasPermission(ADMIN_PERMISSION)) {
+            switch (args[0].toLowerCase()) {
+                case "audit" -> {
+                    handleAuditCommand(sender, args);
+                    return true;
+                }
+                case "top" -> {
+                    handleTopCommand(sender, args);
+                    return true;
+                }
+                case "import" -> {
+                    handleImportCommand(sender, args);
+                    return true;
+                }
+                case "stats" -> {
+                    handleStatsCommand(sender);
+                    return true;
+                }
+            }
+        }
+
         // Check if sender is a player
         if (!(sender instanceof Player player)) {
             sender.sendMessage(ChatColor.RED + "Chỉ có người chơi mới có thể sử dụng lệnh này!");
@@ -57,30 +111,71 @@ public class IgnoreCommand implements CommandExecutor, TabCompleter {
      * Handle ignoring/unignoring a specific player
      */
     private void handleIgnorePlayerCommand(Player player, String targetName) {
-        // Find target player
-        Player target = Bukkit.getPlayer(targetName);
-        if (target == null) {
+        UUID playerUUID = player.getUniqueId();
+
+        // Find target player: an exact online name, then an exact name among already ignored
+        // (possibly offline) players so they can be unignored, and only then an online prefix match
+        UUID targetUUID = nameIndex.getExact(targetName);
+        if (targetUUID == null) {
+            targetUUID = findIgnoredByName(playerUUID, targetName);
+        }
+        if (targetUUID == null) {
+            targetUUID = nameIndex.findBest(targetName);
+        }
+        if (targetUUID == null) {
             player.sendMessage(ChatColor.RED + "Không tìm thấy người chơi: " + targetName);
             return;
         }
 
         // Check if trying to ignore themselves
-        if (target.equals(player)) {
+        if (targetUUID.equals(playerUUID)) {
             player.sendMessage(ChatColor.RED + "Bạn không thể ignore chính mình!");
             return;
         }
 
-        UUID playerUUID = player.getUniqueId();
-        UUID targetUUID = target.getUniqueId();
+        String displayName = nameIndex.getName(targetUUID);
+        if (displayName == null) {
+            displayName = targetName;
+        }
+
+        // Rate limit before doing any work that ends up in the database
+        if (!ignoreManager.tryAcquireWrite(playerUUID)) {
+            player.sendMessage(ChatColor.RED + "Bạn thay đổi danh sách ignore quá nhanh, hãy thử lại sau.");
+            return;
+        }
 
         // Toggle ignore status
         boolean nowIgnoring = ignoreManager.toggleIgnore(playerUUID, targetUUID);
 
         if (nowIgnoring) {
-            player.sendMessage(ChatColor.YELLOW + "Đã ignore " + target.getName() + ". Bạn sẽ không thấy tin nhắn của họ nữa.");
+            player.sendMessage(ChatColor.YELLOW + "Đã ignore " + displayName + ". Bạn sẽ không thấy tin nhắn của họ nữa.");
         } else {
-            player.sendMessage(ChatColor.GREEN + "Đã bỏ ignore " + target.getName() + ".");
+            player.sendMessage(ChatColor.GREEN + "Đã bỏ ignore " + displayName + ".");
+        }
+    }
+
+    /**
+     * Find a player in the sender's ignore list by exact name (case-insensitive)
+     * Known names are checked first; Bukkit is only asked about the rest if none of them match,
+     * and getName remembers misses, so each unknown UUID costs at most one lookup
+     */
+    private UUID findIgnoredByName(UUID playerUUID, String targetName) {
+        List<UUID> unresolved = new ArrayList<>();
+        for (UUID ignoredUUID : ignoreManager.getCachedIgnoredPlayers(playerUUID)) {
+            String name = nameIndex.getResolvedName(ignoredUUID);
+            if (name == null) {
+                unresolved.add(ignoredUUID);
+            } else if (name.equalsIgnoreCase(targetName)) {
+                return ignoredUUID;
+            }
+        }
+        for (UUID ignoredUUID : unresolved) {
+            String name = nameIndex.getName(ignoredUUID);
+            if (name != null && name.equalsIgnoreCase(targetName)) {
+                return ignoredUUID;
+            }
         }
+        return null;
     }
 
     /**
@@ -113,6 +208,11 @@ public class IgnoreCommand implements CommandExecutor, TabCompleter {
             return;
         }
 
+        if (!ignoreManager.tryAcquireWrite(playerUUID)) {
+            player.sendMessage(ChatColor.RED + "Bạn thay đổi danh sách ignore quá nhanh, hãy thử lại sau.");
+            return;
+        }
+
         // Clear all ignores for this player
         for (UUID ignoredUUID : ignoreManager.getIgnoredPlayers(playerUUID)) {
             ignoreManager.removeIgnore(playerUUID, ignoredUUID);
@@ -122,6 +222,144 @@ public class IgnoreCommand implements CommandExecutor, TabCompleter {
                 ignoredCount + " người chơi nữa.");
     }
 
+    /**
+     * Handle /ignore audit [n] command (admin)
+     */
+    private void handleAuditCommand(CommandSender sender, String[] args) {
+        if (!auditLog.isEnabled()) {
+            sender.sendMessage(ChatColor.RED + "Nhật ký audit đang bị tắt trong config.");
+            return;
+        }
+
+        int limit = DEFAULT_AUDIT_LINES;
+        if (args.length >= 2) {
+            try {
+                limit = Math.max(1, Math.min(MAX_AUDIT_LINES, Integer.parseInt(args[1])));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Số lượng không hợp lệ: " + args[1]);
+                return;
+            }
+        }
+
+        auditLog.queryRecent(limit, records -> {
+            sender.sendMessage(ChatColor.GOLD + "=== Nhật ký audit (" + records.size() + " sự kiện gần nhất) ===");
+            SimpleDateFormat format = new SimpleDateFormat("dd/MM HH:mm:ss");
+            for (AuditRecord record : records) {
+                sender.sendMessage(ChatColor.GRAY + format.format(new Date(record.timestamp())) + " "
+                        + ChatColor.YELLOW + displayName(record.actorUUID())
+                        + ChatColor.GRAY + " " + record.type().getDisplayName() + " "
+                        + ChatColor.YELLOW + displayName(record.targetUUID()));
+            }
+            if (auditLog.getDroppedCount() > 0) {
+                sender.sendMessage(ChatColor.RED + "Đã bỏ qua " + auditLog.getDroppedCount()
+                        + " sự kiện do bộ đệm đầy hoặc lỗi ghi.");
+            }
+        });
+    }
+
+    /**
+     * Handle /ignore top [n] command (admin)
+     */
+    private void handleTopCommand(CommandSender sender, String[] args) {
+        int limit = DEFAULT_TOP_LINES;
+        if (args.length >= 2) {
+            try {
+                limit = Math.max(1, Math.min(MAX_TOP_LINES, Integer.parseInt(args[1])));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Số lượng không hợp lệ: " + args[1]);
+                return;
+            }
+        }
+
+        List<IgnoreLeaderboard.Entry> top = ignoreManager.getMostIgnored(limit);
+        if (top.isEmpty()) {
+            sender.sendMessage(ChatColor.GREEN + "Chưa có ai bị ignore.");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "=== Người chơi bị ignore nhiều nhất ===");
+        int rank = 1;
+        for (IgnoreLeaderboard.Entry entry : top) {
+            sender.sendMessage(ChatColor.GRAY + "" + rank++ + ". " + ChatColor.YELLOW + displayName(entry.playerUUID())
+                    + ChatColor.GRAY + " - " + entry.count() + " người ignore");
+        }
+    }
+
+    /**
+     * Handle /ignore import essentials [folder] | status | reset command (admin)
+     */
+    private void handleImportCommand(CommandSender sender, String[] args) {
+        String action = args.length >= 2 ? args[1].toLowerCase() : "";
+
+        switch (action) {
+            case "essentials" -> {
+                File folder = args.length >= 3 ? new File(args[2]) : essentialsImporter.getDefaultFolder();
+                if (essentialsImporter.start(sender, folder)) {
+                    sender.sendMessage(ChatColor.YELLOW + "Bắt đầu nhập dữ liệu ignore từ " + folder.getPath() + "...");
+                } else {
+                    sender.sendMessage(ChatColor.RED + "Đang có một tiến trình nhập dữ liệu chạy.");
+                }
+            }
+            case "status" -> {
+                String state = essentialsImporter.isRunning() ? "Đang chạy: " : "Lần nhập gần nhất: ";
+                sender.sendMessage(ChatColor.YELLOW + state + essentialsImporter.getStatus());
+            }
+            case "reset" -> {
+                if (essentialsImporter.isRunning()) {
+                    sender.sendMessage(ChatColor.RED + "Đang có một tiến trình nhập dữ liệu chạy.");
+                    return;
+                }
+                essentialsImporter.resetCheckpoint();
+                sender.sendMessage(ChatColor.GREEN + "Đã xóa tiến trình nhập dữ liệu, lần nhập tới sẽ bắt đầu lại từ đầu.");
+            }
+            default -> sender.sendMessage(ChatColor.YELLOW + "Cách sử dụng: /ignore import <essentials [thư mục]|status|reset>");
+        }
+    }
+
+    /**
+     * Handle /ignore stats command (admin)
+     */
+    private void handleStatsCommand(CommandSender sender) {
+        IgnoreThrottle throttle = ignoreManager.getThrottle();
+        WriteQueue writeQueue = ignoreManager.getWriteQueue();
+
+        sender.sendMessage(ChatColor.GOLD + "=== Thống kê Ignore ===");
+        sender.sendMessage(ChatColor.YELLOW + "Bộ nhớ đệm: " + ChatColor.GRAY + ignoreManager.getCacheSize()
+                + " người chơi, " + nameIndex.size() + " tên đang online");
+        if (ignoreManager.isFullResidency()) {
+            sender.sendMessage(ChatColor.YELLOW + "Đồ thị trong bộ nhớ: " + ChatColor.GRAY
+                    + ignoreManager.getResidentRelationshipCount() + " bản ghi, "
+                    + ignoreManager.getResidentOverlaySize() + " người chơi chờ gộp");
+        }
+        sender.sendMessage(ChatColor.YELLOW + "Giới hạn: " + ChatColor.GRAY + throttle.getCapacity() + " lượt, hồi "
+                + throttle.getRefillPerSecond() + " lượt/giây, " + throttle.getThrottledCount() + " yêu cầu bị chặn, "
+                + throttle.getBucketCount() + " người chơi đang theo dõi");
+        sender.sendMessage(ChatColor.YELLOW + "Hàng đợi ghi: " + ChatColor.GRAY + writeQueue.getPendingCount()
+                + " đang chờ, " + writeQueue.getWrittenCount() + " đã ghi, " + writeQueue.getCoalescedCount()
+                + " đã gộp, " + writeQueue.getFailedFlushCount() + " lần ghi lỗi");
+        sender.sendMessage(ChatColor.YELLOW + "Audit: " + ChatColor.GRAY + auditLog.getPendingCount() + "/"
+                + auditLog.getCapacity() + " đang chờ, " + auditLog.getWrittenCount() + " đã ghi, "
+                + auditLog.getDroppedCount() + " bị bỏ qua, " + auditLog.getPrunedCount() + " đã dọn");
+        if (reconciler != null) {
+            sender.sendMessage(ChatColor.YELLOW + "Đối chiếu: " + ChatColor.GRAY + reconciler.getPassCount() + " vòng, "
+                    + reconciler.getPlayersChecked() + " người chơi / " + reconciler.getRowsScanned() + " bản ghi đã kiểm tra, "
+                    + reconciler.getPlayersDrifted() + " bị lệch, " + reconciler.getPlayersRepaired() + " đã sửa");
+        }
+        if (retentionPurger != null) {
+            sender.sendMessage(ChatColor.YELLOW + "Dọn dẹp: " + ChatColor.GRAY + retentionPurger.getRunCount() + " lần chạy, "
+                    + retentionPurger.getRowsPurged() + " bản ghi đã xóa, "
+                    + retentionPurger.getFailedBatchCount() + " lô lỗi");
+        }
+    }
+
+    /**
+     * Get a player's name for display, falling back to the UUID
+     */
+    private String displayName(UUID uuid) {
+        String name = nameIndex.getName(uuid);
+        return name != null ? name : uuid.toString();
+    }
+
     /**
      * Send usage message to player
      */
@@ -160,13 +398,30 @@ public class IgnoreCommand implements CommandExecutor, TabCompleter {
             if ("list".startsWith(partialArg)) completions.add("list");
             if ("clear".startsWith(partialArg)) completions.add("clear");
             if ("help".startsWith(partialArg)) completions.add("help");
+            if (sender.hasPermission(ADMIN_PERMISSION)) {
+                if ("audit".startsWith(partialArg)) completions.add("audit");
+                if ("top".startsWith(partialArg)) completions.add("top");
+                if ("import".startsWith(partialArg)) completions.add("import");
+                if ("stats".startsWith(partialArg)) completions.add("stats");
+            }
+
+            // Add online player names, excluding the command sender
+            UUID senderUUID = sender instanceof Player player ? player.getUniqueId() : null;
+            completions.addAll(nameIndex.complete(partialArg, MAX_COMPLETIONS, senderUUID));
 
-            // Add online player names
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                if (player.getName().toLowerCase().startsWith(partialArg)) {
-                    // Don't suggest the command sender
-                    if (!player.equals(sender)) {
-                        completions.add(player.getName());
+            // Add offline players the sender already ignores, so they can be unignored
+            if (senderUUID != null) {
+                for (UUID ignoredUUID : ignoreManager.getCachedIgnoredPlayers(senderUUID)) {
+                    if (completions.size() >= MAX_COMPLETIONS) {
+                        break;
+                    }
+                    if (nameIndex.isOnline(ignoredUUID)) {
+                        continue;
+                    }
+                    // Only names already known; this runs on every keystroke
+                    String name = nameIndex.getResolvedName(ignoredUUID);
+                    if (name != null && name.regionMatches(true, 0, partialArg, 0, partialArg.length())) {
+                        completions.add(name);
                     }
                 }
             }
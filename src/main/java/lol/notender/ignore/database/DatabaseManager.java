@@ -1,15 +1,19 @@
 package lol.notender.ignore.database;
 
+import lol.notender.ignore.audit.AuditEventType;
+import lol.notender.ignore.audit.AuditRecord;
+import lol.notender.ignore.jfr.SqlStatementEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.sql.*;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * Manages SQLite database operations for the ignore system
+ * All access goes through a single connection, so methods are synchronized to keep
+ * statements from background tasks out of each other's transactions
  */
 public class DatabaseManager {
 
@@ -43,6 +47,10 @@ public class DatabaseManager {
 
         // Tuning pragmas for better concurrency / behavior in plugin environment
         try (Statement pragma = connection.createStatement()) {
+            // Let the retention purge hand free pages back in small steps. Only takes effect on a
+            // new database and must come before journal_mode=WAL, which writes the file header;
+            // existing databases are converted by enableIncrementalVacuum()
+            pragma.executeUpdate("PRAGMA auto_vacuum=INCREMENTAL;");
             // Use WAL for better concurrent read/write
             pragma.executeUpdate("PRAGMA journal_mode=WAL;");
             // Wait up to 5000ms when DB is busy
@@ -80,21 +88,82 @@ public class DatabaseManager {
         try (PreparedStatement stmt = connection.prepareStatement(createIndexSQL)) {
             stmt.execute();
         }
+
+        // Index on the ignored side for per-target aggregates (moderation leaderboard)
+        String createIgnoredIndexSQL = "CREATE INDEX IF NOT EXISTS idx_ignored_uuid ON ignore_list(ignored_uuid)";
+        try (PreparedStatement stmt = connection.prepareStatement(createIgnoredIndexSQL)) {
+            stmt.execute();
+        }
+
+        // Resume checkpoints for bulk imports from other plugins
+        String createImportTableSQL = """
+            CREATE TABLE IF NOT EXISTS import_progress (
+                source TEXT PRIMARY KEY,
+                last_file TEXT NOT NULL,
+                rows_imported INTEGER NOT NULL
+            )
+        """;
+
+        try (PreparedStatement stmt = connection.prepareStatement(createImportTableSQL)) {
+            stmt.execute();
+        }
+
+        // Audit trail of ignore changes and blocked whispers (created_at in epoch millis)
+        String createAuditTableSQL = """
+            CREATE TABLE IF NOT EXISTS ignore_audit (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                created_at INTEGER NOT NULL,
+                event_type INTEGER NOT NULL,
+                actor_uuid TEXT NOT NULL,
+                target_uuid TEXT NOT NULL
+            )
+        """;
+
+        try (PreparedStatement stmt = connection.prepareStatement(createAuditTableSQL)) {
+            stmt.execute();
+        }
+
+        // Lets audit pruning find expired events without scanning the table
+        String createAuditIndexSQL = "CREATE INDEX IF NOT EXISTS idx_audit_created_at ON ignore_audit(created_at)";
+        try (PreparedStatement stmt = connection.prepareStatement(createAuditIndexSQL)) {
+            stmt.execute();
+        }
+
+        // When each player was last online (epoch millis), for the retention purge
+        String createLastSeenTableSQL = """
+            CREATE TABLE IF NOT EXISTS last_seen (
+                player_uuid TEXT PRIMARY KEY,
+                last_seen INTEGER NOT NULL
+            )
+        """;
+
+        try (PreparedStatement stmt = connection.prepareStatement(createLastSeenTableSQL)) {
+            stmt.execute();
+        }
+
+        String createLastSeenIndexSQL = "CREATE INDEX IF NOT EXISTS idx_last_seen ON last_seen(last_seen)";
+        try (PreparedStatement stmt = connection.prepareStatement(createLastSeenIndexSQL)) {
+            stmt.execute();
+        }
     }
 
     /**
      * Add a player to ignore list
      */
-    public boolean addIgnore(UUID playerUUID, UUID ignoredUUID) {
+    public synchronized boolean addIgnore(UUID playerUUID, UUID ignoredUUID) {
         // SQLite: use ON CONFLICT DO UPDATE to refresh created_at if pair exists
         String sql = "INSERT INTO ignore_list (player_uuid, ignored_uuid) VALUES (?, ?) " +
                 "ON CONFLICT(player_uuid, ignored_uuid) DO UPDATE SET created_at = CURRENT_TIMESTAMP";
 
+        SqlStatementEvent event = SqlStatementEvent.start();
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, playerUUID.toString());
             stmt.setString(2, ignoredUUID.toString());
-            return stmt.executeUpdate() > 0;
+            int rows = stmt.executeUpdate();
+            event.finish("INSERT", "addIgnore", rows, false);
+            return rows > 0;
         } catch (SQLException e) {
+            event.finish("INSERT", "addIgnore", 0, true);
             plugin.getLogger().severe("Lỗi khi thêm bản ghi ignore: " + e.getMessage());
             return false;
         }
@@ -103,14 +172,18 @@ public class DatabaseManager {
     /**
      * Remove a player from ignore list
      */
-    public boolean removeIgnore(UUID playerUUID, UUID ignoredUUID) {
+    public synchronized boolean removeIgnore(UUID playerUUID, UUID ignoredUUID) {
         String sql = "DELETE FROM ignore_list WHERE player_uuid = ? AND ignored_uuid = ?";
 
+        SqlStatementEvent event = SqlStatementEvent.start();
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, playerUUID.toString());
             stmt.setString(2, ignoredUUID.toString());
-            return stmt.executeUpdate() > 0;
+            int rows = stmt.executeUpdate();
+            event.finish("DELETE", "removeIgnore", rows, false);
+            return rows > 0;
         } catch (SQLException e) {
+            event.finish("DELETE", "removeIgnore", 0, true);
             plugin.getLogger().severe("Lỗi khi xóa bản ghi ignore: " + e.getMessage());
             return false;
         }
@@ -119,17 +192,21 @@ public class DatabaseManager {
     /**
      * Check if a player is ignoring another player
      */
-    public boolean isIgnoring(UUID playerUUID, UUID ignoredUUID) {
+    public synchronized boolean isIgnoring(UUID playerUUID, UUID ignoredUUID) {
         String sql = "SELECT 1 FROM ignore_list WHERE player_uuid = ? AND ignored_uuid = ? LIMIT 1";
 
+        SqlStatementEvent event = SqlStatementEvent.start();
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, playerUUID.toString());
             stmt.setString(2, ignoredUUID.toString());
 
             try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
+                boolean found = rs.next();
+                event.finish("SELECT", "isIgnoring", found ? 1 : 0, false);
+                return found;
             }
         } catch (SQLException e) {
+            event.finish("SELECT", "isIgnoring", 0, true);
             plugin.getLogger().severe("Lỗi khi kiểm tra trạng thái ignore: " + e.getMessage());
             return false;
         }
@@ -138,10 +215,20 @@ public class DatabaseManager {
     /**
      * Get all players that a specific player is ignoring
      */
-    public Set<UUID> getIgnoredPlayers(UUID playerUUID) {
+    public synchronized Set<UUID> getIgnoredPlayers(UUID playerUUID) {
+        Set<UUID> ignoredPlayers = readIgnoredPlayers(playerUUID);
+        return ignoredPlayers != null ? ignoredPlayers : new HashSet<>();
+    }
+
+    /**
+     * Get all players that a specific player is ignoring
+     * @return the set, or null if the query failed (unlike getIgnoredPlayers, which returns an empty set)
+     */
+    public synchronized Set<UUID> readIgnoredPlayers(UUID playerUUID) {
         Set<UUID> ignoredPlayers = new HashSet<>();
         String sql = "SELECT ignored_uuid FROM ignore_list WHERE player_uuid = ?";
 
+        SqlStatementEvent event = SqlStatementEvent.start();
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, playerUUID.toString());
 
@@ -155,37 +242,576 @@ public class DatabaseManager {
                 }
             }
         } catch (SQLException e) {
+            event.finish("SELECT", "getIgnoredPlayers", ignoredPlayers.size(), true);
             plugin.getLogger().severe("Lỗi khi lấy danh sách người chơi bị ignore: " + e.getMessage());
+            return null;
         }
 
+        event.finish("SELECT", "getIgnoredPlayers", ignoredPlayers.size(), false);
         return ignoredPlayers;
     }
 
     /**
      * Get total count of ignore records for a player
      */
-    public int getIgnoreCount(UUID playerUUID) {
+    public synchronized int getIgnoreCount(UUID playerUUID) {
         String sql = "SELECT COUNT(*) as count FROM ignore_list WHERE player_uuid = ?";
 
+        SqlStatementEvent event = SqlStatementEvent.start();
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, playerUUID.toString());
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
+                    event.finish("SELECT", "getIgnoreCount", 1, false);
                     return rs.getInt("count");
                 }
             }
         } catch (SQLException e) {
+            event.finish("SELECT", "getIgnoreCount", 0, true);
             plugin.getLogger().severe("Lỗi khi lấy số lượng ignore: " + e.getMessage());
+            return 0;
         }
 
+        event.finish("SELECT", "getIgnoreCount", 0, false);
         return 0;
     }
 
+    /**
+     * Write a batch of ignore changes in a single transaction
+     * @param added Relationships to store (existing ones get a fresh created_at)
+     * @param removed Relationships to delete
+     * @return true if the whole batch was written
+     */
+    public synchronized boolean applyIgnoreChanges(List<IgnorePair> added, List<IgnorePair> removed) {
+        String insertSQL = "INSERT INTO ignore_list (player_uuid, ignored_uuid) VALUES (?, ?) " +
+                "ON CONFLICT(player_uuid, ignored_uuid) DO UPDATE SET created_at = CURRENT_TIMESTAMP";
+        String deleteSQL = "DELETE FROM ignore_list WHERE player_uuid = ? AND ignored_uuid = ?";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(insertSQL);
+                 PreparedStatement delete = connection.prepareStatement(deleteSQL)) {
+                for (IgnorePair pair : added) {
+                    insert.setString(1, pair.playerUUID().toString());
+                    insert.setString(2, pair.ignoredUUID().toString());
+                    insert.addBatch();
+                }
+                for (IgnorePair pair : removed) {
+                    delete.setString(1, pair.playerUUID().toString());
+                    delete.setString(2, pair.ignoredUUID().toString());
+                    delete.addBatch();
+                }
+                if (!added.isEmpty()) {
+                    insert.executeBatch();
+                }
+                if (!removed.isEmpty()) {
+                    delete.executeBatch();
+                }
+                connection.commit();
+                event.finish("BATCH", "applyIgnoreChanges", added.size() + removed.size(), false);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            event.finish("BATCH", "applyIgnoreChanges", 0, true);
+            plugin.getLogger().severe("Lỗi khi ghi thay đổi ignore: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Stream every ignore relationship, ordered by player then ignored player
+     * Canonical UUID strings sort the same way as their unsigned bits, so callers can build sorted structures directly
+     * @return false if reading failed part way
+     */
+    public synchronized boolean forEachIgnore(BiConsumer<UUID, UUID> consumer) {
+        String sql = "SELECT player_uuid, ignored_uuid FROM ignore_list ORDER BY player_uuid, ignored_uuid";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        int rows = 0;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setFetchSize(10000);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                    try {
+                        consumer.accept(UUID.fromString(rs.getString(1)), UUID.fromString(rs.getString(2)));
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("UUID không hợp lệ trong cơ sở dữ liệu: " + rs.getString(1) + " / " + rs.getString(2));
+                    }
+                }
+            }
+            event.finish("SELECT", "forEachIgnore", rows, false);
+            return true;
+        } catch (SQLException e) {
+            event.finish("SELECT", "forEachIgnore", rows, true);
+            plugin.getLogger().severe("Lỗi khi đọc toàn bộ danh sách ignore: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get a cheap fingerprint of ignore_list contents: row count and highest row id
+     * Any insert raises the highest id (AUTOINCREMENT never reuses ids) and any delete lowers the count
+     */
+    public synchronized long[] getIgnoreListWatermark() {
+        String sql = "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM ignore_list";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                event.finish("SELECT", "getIgnoreListWatermark", 1, false);
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            }
+        } catch (SQLException e) {
+            event.finish("SELECT", "getIgnoreListWatermark", 0, true);
+            plugin.getLogger().severe("Lỗi khi đọc trạng thái bảng ignore_list: " + e.getMessage());
+        }
+
+        return new long[]{-1, -1};
+    }
+
+    /**
+     * Get how many players are ignoring each ignored player
+     * Key: ignored player UUID, Value: number of players ignoring them
+     */
+    public synchronized Map<UUID, Integer> getIgnoreCountsByTarget() {
+        Map<UUID, Integer> counts = new HashMap<>();
+        String sql = "SELECT ignored_uuid, COUNT(*) as count FROM ignore_list GROUP BY ignored_uuid";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                try {
+                    counts.put(UUID.fromString(rs.getString("ignored_uuid")), rs.getInt("count"));
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("UUID không hợp lệ trong cơ sở dữ liệu: " + rs.getString("ignored_uuid"));
+                }
+            }
+        } catch (SQLException e) {
+            event.finish("SELECT", "getIgnoreCountsByTarget", counts.size(), true);
+            plugin.getLogger().severe("Lỗi khi thống kê số lượng ignore theo người chơi: " + e.getMessage());
+            return counts;
+        }
+
+        event.finish("SELECT", "getIgnoreCountsByTarget", counts.size(), false);
+        return counts;
+    }
+
+    /**
+     * Insert a batch of imported ignore records and move the import checkpoint in the same transaction,
+     * so a resumed import never skips rows that were not committed
+     * @param source Import source name (e.g. "essentials")
+     * @param pairs Relationships to insert; ones that already exist are left untouched
+     * @param lastFile Last source file whose rows are all contained in this or earlier batches
+     * @return number of rows actually inserted, or -1 if the batch failed
+     */
+    public synchronized int importIgnoreBatch(String source, List<IgnorePair> pairs, String lastFile) {
+        String insertSQL = "INSERT OR IGNORE INTO ignore_list (player_uuid, ignored_uuid) VALUES (?, ?)";
+        String checkpointSQL = "INSERT INTO import_progress (source, last_file, rows_imported) VALUES (?, ?, ?) " +
+                "ON CONFLICT(source) DO UPDATE SET last_file = excluded.last_file, " +
+                "rows_imported = rows_imported + excluded.rows_imported";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(insertSQL);
+                 PreparedStatement checkpoint = connection.prepareStatement(checkpointSQL)) {
+                for (IgnorePair pair : pairs) {
+                    insert.setString(1, pair.playerUUID().toString());
+                    insert.setString(2, pair.ignoredUUID().toString());
+                    insert.addBatch();
+                }
+
+                int inserted = 0;
+                for (int count : insert.executeBatch()) {
+                    if (count > 0) {
+                        inserted += count;
+                    }
+                }
+
+                checkpoint.setString(1, source);
+                checkpoint.setString(2, lastFile);
+                checkpoint.setInt(3, inserted);
+                checkpoint.executeUpdate();
+
+                connection.commit();
+                event.finish("BATCH", "importIgnoreBatch", inserted, false);
+                return inserted;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            event.finish("BATCH", "importIgnoreBatch", 0, true);
+            plugin.getLogger().severe("Lỗi khi nhập dữ liệu ignore: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Get the last fully imported file for an import source
+     * @return the file name, or null if there is no unfinished import
+     */
+    public synchronized String getImportCheckpoint(String source) {
+        String sql = "SELECT last_file FROM import_progress WHERE source = ?";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, source);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    event.finish("SELECT", "getImportCheckpoint", 1, false);
+                    return rs.getString("last_file");
+                }
+            }
+        } catch (SQLException e) {
+            event.finish("SELECT", "getImportCheckpoint", 0, true);
+            plugin.getLogger().severe("Lỗi khi đọc tiến trình nhập dữ liệu: " + e.getMessage());
+            return null;
+        }
+
+        event.finish("SELECT", "getImportCheckpoint", 0, false);
+        return null;
+    }
+
+    /**
+     * Forget the checkpoint of an import source so the next import starts from the beginning
+     */
+    public synchronized void clearImportCheckpoint(String source) {
+        String sql = "DELETE FROM import_progress WHERE source = ?";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, source);
+            event.finish("DELETE", "clearImportCheckpoint", stmt.executeUpdate(), false);
+        } catch (SQLException e) {
+            event.finish("DELETE", "clearImportCheckpoint", 0, true);
+            plugin.getLogger().severe("Lỗi khi xóa tiến trình nhập dữ liệu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Insert a batch of audit records in a single transaction
+     * @return true if the whole batch was written
+     */
+    public synchronized boolean insertAuditRecords(List<AuditRecord> records) {
+        String sql = "INSERT INTO ignore_audit (created_at, event_type, actor_uuid, target_uuid) VALUES (?, ?, ?, ?)";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (AuditRecord record : records) {
+                    stmt.setLong(1, record.timestamp());
+                    stmt.setInt(2, record.type().getId());
+                    stmt.setString(3, record.actorUUID().toString());
+                    stmt.setString(4, record.targetUUID().toString());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                connection.commit();
+                event.finish("BATCH", "insertAuditRecords", records.size(), false);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            event.finish("BATCH", "insertAuditRecords", 0, true);
+            plugin.getLogger().severe("Lỗi khi ghi nhật ký audit: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get the most recent audit records, newest first
+     */
+    public synchronized List<AuditRecord> getRecentAuditRecords(int limit) {
+        List<AuditRecord> records = new ArrayList<>();
+        String sql = "SELECT created_at, event_type, actor_uuid, target_uuid FROM ignore_audit ORDER BY id DESC LIMIT ?";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    AuditEventType type = AuditEventType.fromId(rs.getInt("event_type"));
+                    if (type == null) {
+                        continue;
+                    }
+                    try {
+                        records.add(new AuditRecord(rs.getLong("created_at"), type,
+                                UUID.fromString(rs.getString("actor_uuid")),
+                                UUID.fromString(rs.getString("target_uuid"))));
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("UUID không hợp lệ trong nhật ký audit: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            event.finish("SELECT", "getRecentAuditRecords", records.size(), true);
+            plugin.getLogger().severe("Lỗi khi đọc nhật ký audit: " + e.getMessage());
+            return records;
+        }
+
+        event.finish("SELECT", "getRecentAuditRecords", records.size(), false);
+        return records;
+    }
+
+    /**
+     * Find the oldest audit event among the newest maxRows, the boundary for pruning by count
+     * Walks up to maxRows entries of the primary key, so look it up once per prune run;
+     * events added afterwards only get higher ids, so the boundary stays valid for the run
+     * @return its id, 0 if there are no more than maxRows events, or -1 if the query failed
+     */
+    public synchronized long findOldestKeptAuditId(int maxRows) {
+        String sql = "SELECT id FROM ignore_audit ORDER BY id DESC LIMIT 1 OFFSET ?";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, maxRows - 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                long id = rs.next() ? rs.getLong(1) : 0;
+                event.finish("SELECT", "findOldestKeptAuditId", id > 0 ? 1 : 0, false);
+                return id;
+            }
+        } catch (SQLException e) {
+            event.finish("SELECT", "findOldestKeptAuditId", 0, true);
+            plugin.getLogger().severe("Lỗi khi dọn nhật ký audit: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Delete one batch of audit events that are older than the cutoff or older than keepFromId
+     * @param cutoff Epoch millis; events created before this are deleted, 0 to not prune by age
+     * @param keepFromId Events with a lower id are deleted (see findOldestKeptAuditId), 0 to not prune by count
+     * @param limit Maximum number of events to delete
+     * @return number of events deleted, or -1 if the delete failed
+     */
+    public synchronized int pruneAuditRecords(long cutoff, long keepFromId, int limit) {
+        String ageSQL = "DELETE FROM ignore_audit WHERE id IN " +
+                "(SELECT id FROM ignore_audit WHERE created_at < ? LIMIT ?)";
+        String countSQL = "DELETE FROM ignore_audit WHERE id IN " +
+                "(SELECT id FROM ignore_audit WHERE id < ? ORDER BY id LIMIT ?)";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try {
+            int deleted = 0;
+            if (cutoff > 0) {
+                try (PreparedStatement stmt = connection.prepareStatement(ageSQL)) {
+                    stmt.setLong(1, cutoff);
+                    stmt.setInt(2, limit);
+                    deleted = stmt.executeUpdate();
+                }
+            }
+            if (keepFromId > 0 && deleted < limit) {
+                try (PreparedStatement stmt = connection.prepareStatement(countSQL)) {
+                    stmt.setLong(1, keepFromId);
+                    stmt.setInt(2, limit - deleted);
+                    deleted += stmt.executeUpdate();
+                }
+            }
+            event.finish("DELETE", "pruneAuditRecords", deleted, false);
+            return deleted;
+        } catch (SQLException e) {
+            event.finish("DELETE", "pruneAuditRecords", 0, true);
+            plugin.getLogger().severe("Lỗi khi dọn nhật ký audit: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Switch an existing database to incremental auto-vacuum
+     * A database created without it needs one full VACUUM to convert, which locks the file
+     * while it rewrites it, so call this at startup before anything else uses the connection
+     * @return true if the database was converted now
+     */
+    public synchronized boolean enableIncrementalVacuum() {
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                // 0 = NONE, 1 = FULL, 2 = INCREMENTAL
+                if (!rs.next() || rs.getInt(1) != 0) {
+                    return false;
+                }
+            }
+            stmt.executeUpdate("PRAGMA auto_vacuum=INCREMENTAL;");
+            stmt.executeUpdate("VACUUM");
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Lỗi khi chuyển cơ sở dữ liệu sang auto_vacuum=INCREMENTAL: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Record that players were online at the given time, in one transaction
+     */
+    public synchronized void updateLastSeen(Collection<UUID> players, long time) {
+        if (players.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO last_seen (player_uuid, last_seen) VALUES (?, ?) " +
+                "ON CONFLICT(player_uuid) DO UPDATE SET last_seen = excluded.last_seen";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (UUID playerUUID : players) {
+                    stmt.setString(1, playerUUID.toString());
+                    stmt.setLong(2, time);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                connection.commit();
+                event.finish("BATCH", "updateLastSeen", players.size(), false);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            event.finish("BATCH", "updateLastSeen", 0, true);
+            plugin.getLogger().severe("Lỗi khi cập nhật thời gian online: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Give every player that owns ignore rows but was never seen a last_seen of the given time,
+     * so rows from before tracking started (or imported ones) age from now instead of never
+     * @return number of players added
+     */
+    public synchronized int seedLastSeen(long time) {
+        String sql = "INSERT OR IGNORE INTO last_seen (player_uuid, last_seen) " +
+                "SELECT DISTINCT player_uuid, ? FROM ignore_list";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, time);
+            int rows = stmt.executeUpdate();
+            event.finish("INSERT", "seedLastSeen", rows, false);
+            return rows;
+        } catch (SQLException e) {
+            event.finish("INSERT", "seedLastSeen", 0, true);
+            plugin.getLogger().severe("Lỗi khi khởi tạo thời gian online: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Delete one batch of ignore rows owned by players last seen before the cutoff
+     * Rows are picked through idx_last_seen and idx_player_uuid and deleted by id in one transaction
+     * @param cutoff Epoch millis; owners last seen before this lose their rows
+     * @param limit Maximum number of rows to delete
+     * @return the deleted relationships, or null if the batch failed
+     */
+    public synchronized List<IgnorePair> purgeInactiveIgnores(long cutoff, int limit) {
+        String selectSQL = "SELECT il.id, il.player_uuid, il.ignored_uuid FROM last_seen ls " +
+                "JOIN ignore_list il ON il.player_uuid = ls.player_uuid " +
+                "WHERE ls.last_seen < ? LIMIT ?";
+        String deleteSQL = "DELETE FROM ignore_list WHERE id = ?";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        List<IgnorePair> purged = new ArrayList<>();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(selectSQL);
+                 PreparedStatement delete = connection.prepareStatement(deleteSQL)) {
+                select.setLong(1, cutoff);
+                select.setInt(2, limit);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        delete.setLong(1, rs.getLong("id"));
+                        delete.addBatch();
+                        purged.add(new IgnorePair(
+                                UUID.fromString(rs.getString("player_uuid")),
+                                UUID.fromString(rs.getString("ignored_uuid"))));
+                    }
+                }
+                if (!purged.isEmpty()) {
+                    delete.executeBatch();
+                }
+                connection.commit();
+                event.finish("BATCH", "purgeInactiveIgnores", purged.size(), false);
+                return purged;
+            } catch (SQLException | IllegalArgumentException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            event.finish("BATCH", "purgeInactiveIgnores", 0, true);
+            plugin.getLogger().severe("Lỗi khi xóa bản ghi ignore của người chơi không hoạt động: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Forget players last seen before the cutoff that no longer own any ignore rows
+     * @return number of players removed from last_seen
+     */
+    public synchronized int purgeLastSeen(long cutoff) {
+        String sql = "DELETE FROM last_seen WHERE last_seen < ? " +
+                "AND NOT EXISTS (SELECT 1 FROM ignore_list WHERE ignore_list.player_uuid = last_seen.player_uuid)";
+
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, cutoff);
+            int rows = stmt.executeUpdate();
+            event.finish("DELETE", "purgeLastSeen", rows, false);
+            return rows;
+        } catch (SQLException e) {
+            event.finish("DELETE", "purgeLastSeen", 0, true);
+            plugin.getLogger().severe("Lỗi khi dọn bảng last_seen: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Hand up to the given number of free pages back to the file system
+     * Does nothing unless the database uses auto_vacuum=INCREMENTAL
+     */
+    public synchronized void incrementalVacuum(int pages) {
+        SqlStatementEvent event = SqlStatementEvent.start();
+        try (Statement stmt = connection.createStatement()) {
+            // SQLite frees one page per result row, so step through all of them
+            if (stmt.execute("PRAGMA incremental_vacuum(" + Math.max(1, pages) + ")")) {
+                try (ResultSet rs = stmt.getResultSet()) {
+                    while (rs.next()) {
+                        // each step frees a page
+                    }
+                }
+            }
+            event.finish("PRAGMA", "incrementalVacuum", pages, false);
+        } catch (SQLException e) {
+            event.finish("PRAGMA", "incrementalVacuum", 0, true);
+            plugin.getLogger().warning("Lỗi khi thu hồi dung lượng cơ sở dữ liệu: " + e.getMessage());
+        }
+    }
+
     /**
      * Close database connection
      */
-    public void close() {
+    public synchronized void close() {
         if (connection != null) {
             try {
                 connection.close();
@@ -199,7 +825,7 @@ public class DatabaseManager {
     /**
      * Check if database connection is valid
      */
-    public boolean isConnected() {
+    public synchronized boolean isConnected() {
         try {
             if (connection == null || connection.isClosed()) return false;
             // try isValid, but fall back to a simple query if unsupported
@@ -0,0 +1,9 @@
+package lol.notender.ignore.database;
+
+import java.util.UUID;
+
+/**
+ * One ignore relationship: playerUUID is ignoring ignoredUUID
+ */
+public record IgnorePair(UUID playerUUID, UUID ignoredUUID) {
+}
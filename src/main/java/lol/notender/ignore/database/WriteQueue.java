@@ -0,0 +1,200 @@
+package lol.notender.ignore.database;
+
+import lol.notender.ignore.jfr.WriteQueueFlushEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind queue for ignore changes. The cache is updated immediately and the
+ * desired final state of each relationship is queued here; repeated toggles of the same
+ * pair overwrite each other, so only the last state is written when the queue is flushed.
+ */
+public class WriteQueue {
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final long flushIntervalTicks;
+
+    // Key: relationship, Value: true to store it, false to delete it
+    private final Map<IgnorePair, Boolean> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    // Coalesced count at the last flush, for the per-flush JFR event; guarded by flush()
+    private long lastCoalesced;
+
+    private BukkitTask flushTask;
+
+    public WriteQueue(JavaPlugin plugin, DatabaseManager databaseManager, long flushIntervalTicks) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.flushIntervalTicks = Math.max(1, flushIntervalTicks);
+    }
+
+    /**
+     * Start the background flusher
+     */
+    public void start() {
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+                plugin, this::flush, flushIntervalTicks, flushIntervalTicks);
+    }
+
+    /**
+     * Stop the background flusher and write everything still queued
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+    }
+
+    /**
+     * Queue the final state of a relationship, replacing any earlier queued state for it
+     */
+    public void enqueue(UUID playerUUID, UUID ignoredUUID, boolean ignoring) {
+        if (pending.put(new IgnorePair(playerUUID, ignoredUUID), ignoring) != null) {
+            coalesced.increment();
+        }
+    }
+
+    /**
+     * Get the queued state of a relationship
+     * @return true/false if a change is waiting to be written, null if the database is up to date
+     */
+    public Boolean getPending(UUID playerUUID, UUID ignoredUUID) {
+        return pending.get(new IgnorePair(playerUUID, ignoredUUID));
+    }
+
+    /**
+     * Copy the queued changes of a player
+     * Take the copy before reading the database: a flush committing an entry and dropping it
+     * in between then still leaves the change in either the copy or the rows read
+     * @return Key: ignored player, Value: queued state
+     */
+    public Map<UUID, Boolean> getPendingChanges(UUID playerUUID) {
+        if (pending.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, Boolean> changes = null;
+        for (Map.Entry<IgnorePair, Boolean> entry : pending.entrySet()) {
+            IgnorePair pair = entry.getKey();
+            if (!pair.playerUUID().equals(playerUUID)) {
+                continue;
+            }
+            if (changes == null) {
+                changes = new HashMap<>();
+            }
+            changes.put(pair.ignoredUUID(), entry.getValue());
+        }
+        return changes != null ? changes : Map.of();
+    }
+
+    /**
+     * Apply changes copied with getPendingChanges on top of a set loaded from the database
+     * Changes the database already contains are applied again, which leaves the set unchanged
+     */
+    public static Set<UUID> applyPending(Set<UUID> ignoredPlayers, Map<UUID, Boolean> changes) {
+        if (changes.isEmpty()) {
+            return ignoredPlayers;
+        }
+        Set<UUID> result = new HashSet<>(ignoredPlayers);
+        for (Map.Entry<UUID, Boolean> change : changes.entrySet()) {
+            if (change.getValue()) {
+                result.add(change.getKey());
+            } else {
+                result.remove(change.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if a player has changes waiting to be written
+     */
+    public boolean hasPending(UUID playerUUID) {
+        for (IgnorePair pair : pending.keySet()) {
+            if (pair.playerUUID().equals(playerUUID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write all queued changes in one transaction
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<IgnorePair, Boolean> batch = new HashMap<>(pending);
+        List<IgnorePair> added = new ArrayList<>();
+        List<IgnorePair> removed = new ArrayList<>();
+        for (Map.Entry<IgnorePair, Boolean> entry : batch.entrySet()) {
+            (entry.getValue() ? added : removed).add(entry.getKey());
+        }
+
+        long coalescedNow = coalesced.sum();
+        WriteQueueFlushEvent event = new WriteQueueFlushEvent();
+        event.begin();
+        boolean success = databaseManager.applyIgnoreChanges(added, removed);
+        event.end();
+        if (event.shouldCommit()) {
+            event.added = added.size();
+            event.removed = removed.size();
+            event.coalesced = coalescedNow - lastCoalesced;
+            event.success = success;
+            event.commit();
+        }
+        lastCoalesced = coalescedNow;
+
+        if (!success) {
+            // Keep everything queued and try again on the next flush
+            failedFlushes.increment();
+            return;
+        }
+
+        // Only drop entries that were not changed again while we were writing
+        for (Map.Entry<IgnorePair, Boolean> entry : batch.entrySet()) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+        written.add(batch.size());
+    }
+
+    /**
+     * Get number of changes waiting to be written
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Get number of queued changes replaced by a newer change before being written
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Get number of changes written to the database
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Get number of flushes that failed and were retried
+     */
+    public long getFailedFlushCount() {
+        return failedFlushes.sum();
+    }
+}
@@ -0,0 +1,317 @@
+package lol.notender.ignore.importer;
+
+import lol.notender.ignore.database.DatabaseManager;
+import lol.notender.ignore.database.IgnorePair;
+import lol.notender.ignore.managers.IgnoreManager;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Imports ignore lists from EssentialsX userdata files (plugins/Essentials/userdata/&lt;uuid&gt;.yml).
+ * Files are streamed line by line and only the top-level "ignore:" list is parsed.
+ * Rows are inserted in large batched transactions on a background thread; each batch also
+ * stores the last completed file, so an interrupted import resumes where it stopped.
+ */
+public class EssentialsImporter {
+
+    private static final String SOURCE = "essentials";
+
+    // Rows per transaction; large enough for throughput, small enough to not hold the connection for long
+    private static final int BATCH_SIZE = 5000;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+
+    // How long plugin shutdown waits for a running import to stop
+    private static final long STOP_TIMEOUT_MILLIS = 30000;
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final IgnoreManager ignoreManager;
+
+    // Also the monitor stop() waits on until the import thread has finished
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean cancelled;
+
+    // Set when batches were committed that the cache and resident graph have not been reloaded with
+    private volatile boolean unreloadedRows;
+
+    // Progress of the current (or last) import, written by the import thread
+    private volatile int filesTotal;
+    private volatile int filesDone;
+    private volatile long rowsRead;
+    private volatile long rowsInserted;
+    private volatile long entriesSkipped;
+
+    public EssentialsImporter(JavaPlugin plugin, DatabaseManager databaseManager, IgnoreManager ignoreManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.ignoreManager = ignoreManager;
+    }
+
+    /**
+     * Get the default EssentialsX userdata folder
+     */
+    public File getDefaultFolder() {
+        return new File(plugin.getDataFolder().getParentFile(), "Essentials" + File.separator + "userdata");
+    }
+
+    /**
+     * Start importing in the background, reporting progress to the sender
+     * @return false if an import is already running
+     */
+    public boolean start(CommandSender sender, File folder) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                runImport(sender, folder);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Lỗi khi nhập dữ liệu từ Essentials: " + e.getMessage());
+                report(sender, ChatColor.RED + "Nhập dữ liệu thất bại: " + e.getMessage());
+            } finally {
+                // Committed batches must reach the cache even if the import stopped part way;
+                // on shutdown there is no point, the resident snapshot is discarded instead
+                if (unreloadedRows && !cancelled && ignoreManager.reloadFromDatabase()) {
+                    unreloadedRows = false;
+                }
+                synchronized (running) {
+                    running.set(false);
+                    running.notifyAll();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stop a running import after its current file and wait for it to finish
+     * The checkpoint is kept, so the import resumes on the next run
+     */
+    public void stop() {
+        cancelled = true;
+        long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MILLIS;
+        synchronized (running) {
+            while (running.get()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    plugin.getLogger().warning("Nhập dữ liệu từ Essentials chưa dừng kịp khi tắt plugin.");
+                    return;
+                }
+                try {
+                    running.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void runImport(CommandSender sender, File folder) {
+        String[] fileNames = folder.list((dir, name) -> name.endsWith(".yml"));
+        if (fileNames == null) {
+            report(sender, ChatColor.RED + "Không tìm thấy thư mục: " + folder.getPath());
+            return;
+        }
+        Arrays.sort(fileNames);
+
+        // Resume after the last file whose rows were committed
+        int start = 0;
+        String checkpoint = databaseManager.getImportCheckpoint(SOURCE);
+        if (checkpoint != null) {
+            int pos = Arrays.binarySearch(fileNames, checkpoint);
+            start = pos >= 0 ? pos + 1 : -pos - 1;
+            report(sender, ChatColor.YELLOW + "Tiếp tục nhập dữ liệu sau " + checkpoint
+                    + " (" + start + "/" + fileNames.length + " tệp đã xong).");
+        }
+
+        filesTotal = fileNames.length;
+        filesDone = start;
+        rowsRead = 0;
+        rowsInserted = 0;
+        entriesSkipped = 0;
+
+        long startedAt = System.currentTimeMillis();
+        long lastReport = startedAt;
+        List<IgnorePair> batch = new ArrayList<>(BATCH_SIZE + 256);
+
+        for (int i = start; i < fileNames.length; i++) {
+            if (cancelled) {
+                // Plugin shutdown, not a failure; the sender can no longer be messaged
+                plugin.getLogger().info("Nhập dữ liệu bị dừng do plugin tắt. Chạy lại lệnh để tiếp tục.");
+                return;
+            }
+            String fileName = fileNames[i];
+            UUID ownerUUID = parseUUID(fileName.substring(0, fileName.length() - ".yml".length()));
+            if (ownerUUID != null) {
+                readIgnoreList(new File(folder, fileName), ownerUUID, batch);
+            }
+            filesDone = i + 1;
+
+            // Only cut batches at file boundaries so the checkpoint always covers whole files
+            if (batch.size() >= BATCH_SIZE && !flush(batch, fileName)) {
+                report(sender, ChatColor.RED + "Nhập dữ liệu bị dừng do lỗi cơ sở dữ liệu. Chạy lại lệnh để tiếp tục.");
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= PROGRESS_INTERVAL_MILLIS) {
+                lastReport = now;
+                report(sender, ChatColor.GRAY + "Đang nhập: " + progressLine(startedAt));
+            }
+        }
+
+        if (!batch.isEmpty() && !flush(batch, fileNames[fileNames.length - 1])) {
+            report(sender, ChatColor.RED + "Nhập dữ liệu bị dừng do lỗi cơ sở dữ liệu. Chạy lại lệnh để tiếp tục.");
+            return;
+        }
+
+        // Finished, the next import should start from scratch; the caller reloads the cache
+        databaseManager.clearImportCheckpoint(SOURCE);
+
+        report(sender, ChatColor.GREEN + "Nhập dữ liệu hoàn tất: " + progressLine(startedAt));
+    }
+
+    /**
+     * Stream one userdata file and add its ignore entries to the batch
+     */
+    private void readIgnoreList(File file, UUID ownerUUID, List<IgnorePair> batch) {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            boolean inList = false;
+            while ((line = reader.readLine()) != null) {
+                if (!inList) {
+                    if (!line.startsWith("ignore:")) {
+                        continue;
+                    }
+                    String inline = line.substring("ignore:".length()).trim();
+                    if (inline.startsWith("[")) {
+                        // Flow style: ignore: [a, b]
+                        String items = inline.substring(1, inline.endsWith("]") ? inline.length() - 1 : inline.length());
+                        for (String item : items.split(",")) {
+                            addEntry(ownerUUID, item, batch);
+                        }
+                        return;
+                    }
+                    inList = true;
+                    continue;
+                }
+
+                String trimmed = line.trim();
+                if (trimmed.startsWith("- ")) {
+                    addEntry(ownerUUID, trimmed.substring(2), batch);
+                } else if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    // Next key, the ignore list is over and nothing else in the file is needed
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            entriesSkipped++;
+            plugin.getLogger().warning("Không thể đọc tệp " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void addEntry(UUID ownerUUID, String rawValue, List<IgnorePair> batch) {
+        String value = rawValue.trim();
+        if (value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')) {
+            value = value.substring(1, value.length() - 1);
+        }
+        if (value.isEmpty()) {
+            return;
+        }
+
+        rowsRead++;
+        // Old Essentials versions stored names instead of UUIDs; those cannot be resolved offline
+        UUID ignoredUUID = parseUUID(value);
+        if (ignoredUUID == null || ignoredUUID.equals(ownerUUID)) {
+            entriesSkipped++;
+            return;
+        }
+        batch.add(new IgnorePair(ownerUUID, ignoredUUID));
+    }
+
+    private boolean flush(List<IgnorePair> batch, String lastFile) {
+        int inserted = databaseManager.importIgnoreBatch(SOURCE, batch, lastFile);
+        if (inserted < 0) {
+            return false;
+        }
+        rowsInserted += inserted;
+        if (inserted > 0) {
+            unreloadedRows = true;
+        }
+        batch.clear();
+        return true;
+    }
+
+    private static UUID parseUUID(String value) {
+        if (value.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String progressLine(long startedAt) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startedAt);
+        return filesDone + "/" + filesTotal + " tệp, " + rowsInserted + " bản ghi mới / " + rowsRead
+                + " đã đọc, " + entriesSkipped + " bỏ qua, " + (rowsRead * 1000 / elapsed) + " bản ghi/giây";
+    }
+
+    /**
+     * Send a message to the sender on the main thread and mirror it to the console log
+     * Once the plugin is disabled tasks can no longer be scheduled, so only the log gets it
+     */
+    private void report(CommandSender sender, String message) {
+        plugin.getLogger().info(ChatColor.stripColor(message));
+        if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        }
+    }
+
+    /**
+     * Check if an import is running
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Check if rows were imported that the cache and resident graph do not contain yet
+     * (an import is running, or it stopped and reloading afterwards failed)
+     */
+    public boolean hasUnreloadedRows() {
+        return unreloadedRows;
+    }
+
+    /**
+     * Get a one-line summary of the current or last import
+     */
+    public String getStatus() {
+        return filesDone + "/" + filesTotal + " tệp, " + rowsInserted + " bản ghi mới, " + entriesSkipped + " bỏ qua";
+    }
+
+    /**
+     * Forget a previous unfinished import so the next one starts from the beginning
+     */
+    public void resetCheckpoint() {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin,
+                () -> databaseManager.clearImportCheckpoint(SOURCE));
+    }
+}
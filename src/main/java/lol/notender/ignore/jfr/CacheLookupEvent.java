@@ -0,0 +1,34 @@
+package lol.notender.ignore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for one isIgnoring lookup. Disabled by default since it fires per chat recipient.
+ */
+@Name("lol.notender.ignore.CacheLookup")
+@Label("Ignore Lookup")
+@Description("Ignore check and where it was answered from")
+@Category({"RVL Ignore", "Cache"})
+@Enabled(false)
+public class CacheLookupEvent extends Event {
+
+    public static final String HIT = "hit";
+    public static final String RESIDENT = "resident";
+    public static final String PENDING = "pending";
+    public static final String MISS = "miss";
+    public static final String LOADING = "loading";
+
+    @Label("Player")
+    public String player;
+
+    @Label("Target")
+    public String target;
+
+    @Label("Outcome")
+    @Description("hit: cached snapshot, resident: in-memory graph, pending: queued write, "
+            + "miss: database says not ignoring, loading: database says ignoring and the player is loaded")
+    public String outcome;
+
+    @Label("Ignoring")
+    public boolean ignoring;
+}
@@ -0,0 +1,23 @@
+package lol.notender.ignore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for filtering the recipients of one chat message
+ */
+@Name("lol.notender.ignore.ChatFilter")
+@Label("Chat Filter")
+@Description("Removal of recipients ignoring the sender from a chat message")
+@Category({"RVL Ignore", "Chat"})
+@Threshold("1 ms")
+public class ChatFilterEvent extends Event {
+
+    @Label("Sender")
+    public String sender;
+
+    @Label("Recipients In")
+    public int recipientsIn;
+
+    @Label("Recipients Out")
+    public int recipientsOut;
+}
@@ -0,0 +1,51 @@
+package lol.notender.ignore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for one SQL statement or batch run by DatabaseManager
+ */
+@Name("lol.notender.ignore.SqlStatement")
+@Label("SQL Statement")
+@Description("SQLite statement or batch run against the ignore database")
+@Category({"RVL Ignore", "Database"})
+@Threshold("10 ms")
+public class SqlStatementEvent extends Event {
+
+    @Label("Kind")
+    @Description("SQL verb: SELECT, INSERT, DELETE, BATCH...")
+    public String kind;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Rows")
+    @Description("Rows read or changed")
+    public int rows;
+
+    @Label("Failed")
+    public boolean failed;
+
+    /**
+     * Create an event and start timing it
+     */
+    public static SqlStatementEvent start() {
+        SqlStatementEvent event = new SqlStatementEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stop timing and commit the event if it is enabled and over the threshold
+     */
+    public void finish(String kind, String operation, int rows, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.kind = kind;
+            this.operation = operation;
+            this.rows = rows;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
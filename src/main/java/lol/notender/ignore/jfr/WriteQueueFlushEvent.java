@@ -0,0 +1,27 @@
+package lol.notender.ignore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for one flush of the ignore write queue
+ */
+@Name("lol.notender.ignore.WriteQueueFlush")
+@Label("Write Queue Flush")
+@Description("Batched write of queued ignore changes")
+@Category({"RVL Ignore", "Database"})
+@Threshold("0 ms")
+public class WriteQueueFlushEvent extends Event {
+
+    @Label("Added")
+    public int added;
+
+    @Label("Removed")
+    public int removed;
+
+    @Label("Coalesced")
+    @Description("Changes replaced by a newer change before this flush")
+    public long coalesced;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -1,6 +1,8 @@
 package lol.notender.ignore.listeners;
 
+import lol.notender.ignore.jfr.ChatFilterEvent;
 import lol.notender.ignore.managers.IgnoreManager;
+import lol.notender.ignore.managers.PlayerNameIndex;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -9,7 +11,8 @@ import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -19,9 +22,11 @@ import java.util.UUID;
 public class ChatListener implements Listener {
 
     private final IgnoreManager ignoreManager;
+    private final PlayerNameIndex nameIndex;
 
-    public ChatListener(IgnoreManager ignoreManager) {
+    public ChatListener(IgnoreManager ignoreManager, PlayerNameIndex nameIndex) {
         this.ignoreManager = ignoreManager;
+        this.nameIndex = nameIndex;
     }
 
     /**
@@ -38,22 +43,27 @@ public class ChatListener implements Listener {
         Player sender = event.getPlayer();
         UUID senderUUID = sender.getUniqueId();
 
-        // Create new recipient set without ignored players
-        Set<Player> filteredRecipients = new HashSet<>();
+        ChatFilterEvent filterEvent = new ChatFilterEvent();
+        filterEvent.begin();
+        filterEvent.recipientsIn = event.getRecipients().size();
 
-        // Check each recipient to see if they're ignoring the sender
+        // Remove recipients that are ignoring the sender, in place
+        // Cached recipients are checked against one read of the sender's ignorers
+        List<UUID> recipients = new ArrayList<>(event.getRecipients().size());
         for (Player recipient : event.getRecipients()) {
-            UUID recipientUUID = recipient.getUniqueId();
-
-            // If recipient is not ignoring the sender, add them to filtered list
-            if (!ignoreManager.isIgnoring(recipientUUID, senderUUID)) {
-                filteredRecipients.add(recipient);
-            }
+            recipients.add(recipient.getUniqueId());
+        }
+        Set<UUID> blocked = ignoreManager.findIgnoringRecipients(senderUUID, recipients);
+        if (!blocked.isEmpty()) {
+            event.getRecipients().removeIf(recipient -> blocked.contains(recipient.getUniqueId()));
         }
 
-        // Update the recipient list
-        event.getRecipients().clear();
-        event.getRecipients().addAll(filteredRecipients);
+        filterEvent.end();
+        if (filterEvent.shouldCommit()) {
+            filterEvent.sender = sender.getName();
+            filterEvent.recipientsOut = event.getRecipients().size();
+            filterEvent.commit();
+        }
     }
 
     /**
@@ -65,11 +75,14 @@ public class ChatListener implements Listener {
         Player player = event.getPlayer();
         UUID playerUUID = player.getUniqueId();
 
-        // Load players' ignore data into cache
+        // Load players' ignore data into cache, and the names of who they ignore for tab completion
         // This is done async to avoid blocking the main thread
         player.getServer().getScheduler().runTaskAsynchronously(
                 player.getServer().getPluginManager().getPlugin("Ignore"),
-                () -> ignoreManager.loadPlayerIgnoreData(playerUUID)
+                () -> {
+                    ignoreManager.loadPlayerIgnoreData(playerUUID);
+                    nameIndex.resolveNames(ignoreManager.getCachedIgnoredPlayers(playerUUID));
+                }
         );
     }
 
@@ -0,0 +1,45 @@
+package lol.notender.ignore.listeners;
+
+import lol.notender.ignore.database.DatabaseManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Records when players were last online, for the retention purge
+ */
+public class LastSeenListener implements Listener {
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+
+    public LastSeenListener(JavaPlugin plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Refresh on join too, so a player coming back is safe from a purge running while they play
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        touch(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        touch(event.getPlayer().getUniqueId());
+    }
+
+    private void touch(UUID playerUUID) {
+        long now = System.currentTimeMillis();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin,
+                () -> databaseManager.updateLastSeen(List.of(playerUUID), now));
+    }
+}
@@ -0,0 +1,38 @@
+package lol.notender.ignore.listeners;
+
+import lol.notender.ignore.managers.PlayerNameIndex;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Keeps the online player name index up to date
+ */
+public class PlayerIndexListener implements Listener {
+
+    private final PlayerNameIndex nameIndex;
+
+    public PlayerIndexListener(PlayerNameIndex nameIndex) {
+        this.nameIndex = nameIndex;
+    }
+
+    /**
+     * Index the player as early as possible so other join handlers can resolve them
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        nameIndex.add(player.getUniqueId(), player.getName());
+    }
+
+    /**
+     * Drop the player from the index once every other quit handler has run
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        nameIndex.remove(event.getPlayer().getUniqueId());
+    }
+}
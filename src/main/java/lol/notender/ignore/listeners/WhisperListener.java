@@ -1,8 +1,10 @@
 package lol.notender.ignore.listeners;
 
+import lol.notender.ignore.audit.AuditEventType;
+import lol.notender.ignore.audit.AuditLog;
 import lol.notender.ignore.managers.ConfigManager;
 import lol.notender.ignore.managers.IgnoreManager;
-import org.bukkit.Bukkit;
+import lol.notender.ignore.managers.PlayerNameIndex;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -20,10 +22,15 @@ public class WhisperListener implements Listener {
 
     private final IgnoreManager ignoreManager;
     private final ConfigManager configManager;
+    private final PlayerNameIndex nameIndex;
+    private final AuditLog auditLog;
 
-    public WhisperListener(IgnoreManager ignoreManager, ConfigManager configManager) {
+    public WhisperListener(IgnoreManager ignoreManager, ConfigManager configManager,
+                           PlayerNameIndex nameIndex, AuditLog auditLog) {
         this.ignoreManager = ignoreManager;
         this.configManager = configManager;
+        this.nameIndex = nameIndex;
+        this.auditLog = auditLog;
     }
 
     /**
@@ -59,29 +66,27 @@ public class WhisperListener implements Listener {
         String targetName = args[1];
 
         // Find target player
-        Player target = Bukkit.getPlayer(targetName);
-        if (target == null) {
+        UUID targetUUID = nameIndex.findBest(targetName);
+        if (targetUUID == null) {
             // Let the original command handle "player not found" message
             return;
         }
 
+        UUID senderUUID = sender.getUniqueId();
+
         // Don't block messages to self (though it's weird)
-        if (target.equals(sender)) {
+        if (targetUUID.equals(senderUUID)) {
             return;
         }
 
-        UUID senderUUID = sender.getUniqueId();
-        UUID targetUUID = target.getUniqueId();
-
         // Check if target is ignoring sender
         if (ignoreManager.isIgnoring(targetUUID, senderUUID)) {
             // Cancel the command and notify sender
             event.setCancelled(true);
-            sender.sendMessage(ChatColor.RED + configManager.getIgnoreMessage(target.getName()));
+            sender.sendMessage(ChatColor.RED + configManager.getIgnoreMessage(nameIndex.getName(targetUUID)));
 
-            // Optional: Log the attempt for moderation purposes
-            // Bukkit.getLogger().info(sender.getName() + " attempted to send private message to " +
-            //                        target.getName() + " but was blocked due to ignore");
+            // Log the attempt for moderation purposes (buffered, written in the background)
+            auditLog.record(AuditEventType.WHISPER_BLOCKED, senderUUID, targetUUID);
         }
     }
 }
\ No newline at end of file
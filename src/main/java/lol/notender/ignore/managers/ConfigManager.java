@@ -45,6 +45,86 @@ public class ConfigManager {
             config.set("ignore-message", "Bạn không thể gửi tin nhắn riêng cho {player} vì họ đã ignore bạn.");
         }
 
+        if (!config.contains("audit.enabled")) {
+            config.set("audit.enabled", true);
+        }
+
+        if (!config.contains("audit.buffer-size")) {
+            config.set("audit.buffer-size", 4096);
+        }
+
+        if (!config.contains("audit.flush-interval-ticks")) {
+            config.set("audit.flush-interval-ticks", 100);
+        }
+
+        if (!config.contains("audit.max-age-days")) {
+            config.set("audit.max-age-days", 30);
+        }
+
+        if (!config.contains("audit.max-rows")) {
+            config.set("audit.max-rows", 1000000);
+        }
+
+        if (!config.contains("throttle.capacity")) {
+            config.set("throttle.capacity", 5);
+        }
+
+        if (!config.contains("throttle.refill-per-second")) {
+            config.set("throttle.refill-per-second", 0.5);
+        }
+
+        if (!config.contains("write-queue.flush-interval-ticks")) {
+            config.set("write-queue.flush-interval-ticks", 20);
+        }
+
+        if (!config.contains("full-residency.enabled")) {
+            config.set("full-residency.enabled", false);
+        }
+
+        if (!config.contains("full-residency.fold-interval-ticks")) {
+            config.set("full-residency.fold-interval-ticks", 6000);
+        }
+
+        if (!config.contains("reconcile.enabled")) {
+            config.set("reconcile.enabled", true);
+        }
+
+        if (!config.contains("reconcile.interval-ticks")) {
+            config.set("reconcile.interval-ticks", 200);
+        }
+
+        if (!config.contains("reconcile.players-per-run")) {
+            config.set("reconcile.players-per-run", 10);
+        }
+
+        if (!config.contains("reconcile.max-rows-per-run")) {
+            config.set("reconcile.max-rows-per-run", 1000);
+        }
+
+        if (!config.contains("retention.enabled")) {
+            config.set("retention.enabled", false);
+        }
+
+        if (!config.contains("retention.inactive-days")) {
+            config.set("retention.inactive-days", 180);
+        }
+
+        if (!config.contains("retention.batch-size")) {
+            config.set("retention.batch-size", 500);
+        }
+
+        if (!config.contains("retention.batches-per-run")) {
+            config.set("retention.batches-per-run", 20);
+        }
+
+        if (!config.contains("retention.vacuum-pages")) {
+            config.set("retention.vacuum-pages", 1000);
+        }
+
+        if (!config.contains("retention.interval-ticks")) {
+            config.set("retention.interval-ticks", 1200);
+        }
+
         plugin.saveConfig();
     }
 
@@ -71,6 +151,153 @@ public class ConfigManager {
         return message.replace("{player}", playerName);
     }
 
+    /**
+     * Check if the audit log is enabled
+     */
+    public boolean isAuditEnabled() {
+        return config.getBoolean("audit.enabled", true);
+    }
+
+    /**
+     * Get number of audit events that can be buffered before new ones are dropped
+     */
+    public int getAuditBufferSize() {
+        return config.getInt("audit.buffer-size", 4096);
+    }
+
+    /**
+     * Get interval in ticks between audit log flushes to the database
+     */
+    public long getAuditFlushIntervalTicks() {
+        return config.getLong("audit.flush-interval-ticks", 100);
+    }
+
+    /**
+     * Get number of days audit events are kept, 0 to keep them regardless of age
+     */
+    public int getAuditMaxAgeDays() {
+        return config.getInt("audit.max-age-days", 30);
+    }
+
+    /**
+     * Get maximum number of audit events kept, 0 for no limit
+     */
+    public int getAuditMaxRows() {
+        return config.getInt("audit.max-rows", 1000000);
+    }
+
+    /**
+     * Get how many ignore changes a player can make in a burst
+     */
+    public int getThrottleCapacity() {
+        return config.getInt("throttle.capacity", 5);
+    }
+
+    /**
+     * Get how many ignore changes per second a player regains
+     */
+    public double getThrottleRefillPerSecond() {
+        return config.getDouble("throttle.refill-per-second", 0.5);
+    }
+
+    /**
+     * Get interval in ticks between write queue flushes to the database
+     */
+    public long getWriteQueueFlushIntervalTicks() {
+        return config.getLong("write-queue.flush-interval-ticks", 20);
+    }
+
+    /**
+     * Check if the whole ignore graph should be kept in memory
+     */
+    public boolean isFullResidencyEnabled() {
+        return config.getBoolean("full-residency.enabled", false);
+    }
+
+    /**
+     * Get interval in ticks between folding changed rows into the resident graph
+     */
+    public long getFullResidencyFoldIntervalTicks() {
+        return config.getLong("full-residency.fold-interval-ticks", 6000);
+    }
+
+    /**
+     * Get how many changed players the overlay must hold before they are folded into the resident graph
+     */
+    public int getFullResidencyFoldMinPlayers() {
+        return config.getInt("full-residency.fold-min-players", 1000);
+    }
+
+    /**
+     * Check if the background cache/database reconciler is enabled
+     */
+    public boolean isReconcileEnabled() {
+        return config.getBoolean("reconcile.enabled", true);
+    }
+
+    /**
+     * Get interval in ticks between reconciler runs
+     */
+    public long getReconcileIntervalTicks() {
+        return config.getLong("reconcile.interval-ticks", 200);
+    }
+
+    /**
+     * Get maximum number of players the reconciler checks per run
+     */
+    public int getReconcilePlayersPerRun() {
+        return config.getInt("reconcile.players-per-run", 10);
+    }
+
+    /**
+     * Get maximum number of database rows the reconciler reads per run
+     */
+    public int getReconcileMaxRowsPerRun() {
+        return config.getInt("reconcile.max-rows-per-run", 1000);
+    }
+
+    /**
+     * Check if ignore lists of long inactive players are purged
+     */
+    public boolean isRetentionEnabled() {
+        return config.getBoolean("retention.enabled", false);
+    }
+
+    /**
+     * Get number of days a player can be offline before their ignore list is purged
+     */
+    public int getRetentionInactiveDays() {
+        return config.getInt("retention.inactive-days", 180);
+    }
+
+    /**
+     * Get number of rows deleted per purge transaction
+     */
+    public int getRetentionBatchSize() {
+        return config.getInt("retention.batch-size", 500);
+    }
+
+    /**
+     * Get maximum number of purge batches per run
+     */
+    public int getRetentionBatchesPerRun() {
+        return config.getInt("retention.batches-per-run", 20);
+    }
+
+    /**
+     * Get maximum number of free pages reclaimed after each purge run
+     */
+    public int getRetentionVacuumPages() {
+        return config.getInt("retention.vacuum-pages", 1000);
+    }
+
+    /**
+     * Get interval in ticks between purge runs
+     */
+    public long getRetentionIntervalTicks() {
+        return config.getLong("retention.interval-ticks", 1200);
+    }
+
     /**
      * Reload configuration
      */
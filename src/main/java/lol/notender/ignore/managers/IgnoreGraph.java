@@ -0,0 +1,477 @@
+package lol.notender.ignore.managers;
+
+import lol.notender.ignore.database.IgnorePair;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Immutable in-memory copy of the whole ignore_list in compressed sparse row layout.
+ * UUIDs are stored as two longs and ordered unsigned, which matches the text order of
+ * canonical UUID strings, so rows can be streamed straight from an ORDER BY query.
+ * <ul>
+ *     <li>players: sorted owner UUIDs (2 longs each)</li>
+ *     <li>offsets: row i spans targets[offsets[i] .. offsets[i + 1])</li>
+ *     <li>targets: sorted ignored UUIDs of each row (2 longs each)</li>
+ * </ul>
+ */
+public final class IgnoreGraph {
+
+    private static final int MAGIC = 0x52564C49; // "RVLI"
+    private static final int VERSION = 1;
+
+    private final long[] players;
+    private final int[] offsets;
+    private final long[] targets;
+
+    private IgnoreGraph(long[] players, int[] offsets, long[] targets) {
+        this.players = players;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Get number of players ignoring at least one other player
+     */
+    public int playerCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Get number of ignore relationships
+     */
+    public int relationshipCount() {
+        return targets.length / 2;
+    }
+
+    /**
+     * Check if a player is ignoring a target
+     */
+    public boolean contains(UUID playerUUID, UUID targetUUID) {
+        int row = indexOf(players, 0, playerCount(),
+                playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits());
+        if (row < 0) {
+            return false;
+        }
+        return indexOf(targets, offsets[row], offsets[row + 1],
+                targetUUID.getMostSignificantBits(), targetUUID.getLeastSignificantBits()) >= 0;
+    }
+
+    /**
+     * Get everyone a player is ignoring
+     * @return an immutable set, empty if the player ignores nobody
+     */
+    public Set<UUID> row(UUID playerUUID) {
+        int row = indexOf(players, 0, playerCount(),
+                playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits());
+        if (row < 0) {
+            return Set.of();
+        }
+        UUID[] result = new UUID[offsets[row + 1] - offsets[row]];
+        for (int i = offsets[row], j = 0; i < offsets[row + 1]; i++, j++) {
+            result[j] = new UUID(targets[2 * i], targets[2 * i + 1]);
+        }
+        return Set.of(result);
+    }
+
+    /**
+     * Count how many players are ignoring each target
+     */
+    public Map<UUID, Integer> countByTarget() {
+        Map<UUID, Integer> counts = new HashMap<>();
+        for (int i = 0; i < targets.length; i += 2) {
+            counts.merge(new UUID(targets[i], targets[i + 1]), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Binary search for a UUID among entries [from, to) of a pair array
+     * @return the entry index, or a negative value if absent
+     */
+    private static int indexOf(long[] pairs, int from, int to, long most, long least) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(pairs[2 * mid], pairs[2 * mid + 1], most, least);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int compare(long aMost, long aLeast, long bMost, long bLeast) {
+        int cmp = Long.compareUnsigned(aMost, bMost);
+        return cmp != 0 ? cmp : Long.compareUnsigned(aLeast, bLeast);
+    }
+
+    /**
+     * Build a new graph with the given players' rows replaced
+     * @param overlay Key: player UUID, Value: their complete ignore set (may be empty)
+     */
+    public IgnoreGraph withRows(Map<UUID, Set<UUID>> overlay) {
+        if (overlay.isEmpty()) {
+            return this;
+        }
+
+        // Overlay players in graph order, so base rows and overlay rows can be merged in one pass
+        long[] overlayPlayers = new long[overlay.size() * 2];
+        int k = 0;
+        for (UUID playerUUID : overlay.keySet()) {
+            overlayPlayers[k++] = playerUUID.getMostSignificantBits();
+            overlayPlayers[k++] = playerUUID.getLeastSignificantBits();
+        }
+        sortPairs(overlayPlayers, 2);
+
+        // Upper bound: every overlay row may be new
+        long expected = relationshipCount();
+        for (Set<UUID> row : overlay.values()) {
+            expected += row.size();
+        }
+        Builder builder = new Builder((int) Math.min(expected, Integer.MAX_VALUE / 4));
+        int row = 0;
+        int next = 0;
+        int overlayCount = overlay.size();
+        while (row < playerCount() || next < overlayCount) {
+            int cmp;
+            if (row >= playerCount()) {
+                cmp = 1;
+            } else if (next >= overlayCount) {
+                cmp = -1;
+            } else {
+                cmp = compare(players[2 * row], players[2 * row + 1],
+                        overlayPlayers[2 * next], overlayPlayers[2 * next + 1]);
+            }
+
+            if (cmp < 0) {
+                for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+                    builder.add(players[2 * row], players[2 * row + 1], targets[2 * i], targets[2 * i + 1]);
+                }
+                row++;
+            } else {
+                long most = overlayPlayers[2 * next];
+                long least = overlayPlayers[2 * next + 1];
+                long[] rowTargets = toSortedPairs(overlay.get(new UUID(most, least)));
+                for (int i = 0; i < rowTargets.length; i += 2) {
+                    builder.add(most, least, rowTargets[i], rowTargets[i + 1]);
+                }
+                next++;
+                if (cmp == 0) {
+                    row++;
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collect the relationships that differ between this graph and a newer one, in one merge pass
+     * @param added Receives relationships only in the newer graph
+     * @param removed Receives relationships only in this graph
+     */
+    public void diff(IgnoreGraph newer, List<IgnorePair> added, List<IgnorePair> removed) {
+        int count = relationshipCount();
+        int newerCount = newer.relationshipCount();
+        int row = 0;
+        int newerRow = 0;
+        int i = 0;
+        int j = 0;
+        while (i < count || j < newerCount) {
+            // Move each row cursor to the row holding its relationship (rows may be empty)
+            while (i < count && offsets[row + 1] <= i) {
+                row++;
+            }
+            while (j < newerCount && newer.offsets[newerRow + 1] <= j) {
+                newerRow++;
+            }
+
+            int cmp;
+            if (i >= count) {
+                cmp = 1;
+            } else if (j >= newerCount) {
+                cmp = -1;
+            } else {
+                cmp = compare(players[2 * row], players[2 * row + 1],
+                        newer.players[2 * newerRow], newer.players[2 * newerRow + 1]);
+                if (cmp == 0) {
+                    cmp = compare(targets[2 * i], targets[2 * i + 1],
+                            newer.targets[2 * j], newer.targets[2 * j + 1]);
+                }
+            }
+
+            if (cmp < 0) {
+                removed.add(new IgnorePair(new UUID(players[2 * row], players[2 * row + 1]),
+                        new UUID(targets[2 * i], targets[2 * i + 1])));
+                i++;
+            } else if (cmp > 0) {
+                added.add(new IgnorePair(new UUID(newer.players[2 * newerRow], newer.players[2 * newerRow + 1]),
+                        new UUID(newer.targets[2 * j], newer.targets[2 * j + 1])));
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private static long[] toSortedPairs(Set<UUID> uuids) {
+        long[] pairs = new long[uuids.size() * 2];
+        int i = 0;
+        for (UUID uuid : uuids) {
+            pairs[i++] = uuid.getMostSignificantBits();
+            pairs[i++] = uuid.getLeastSignificantBits();
+        }
+        sortPairs(pairs, 2);
+        return pairs;
+    }
+
+    /**
+     * Heapsort fixed-width records of longs in place, ordered by their leading longs compared unsigned
+     * @param width Longs per record (2 for a UUID, 4 for a player/target pair)
+     */
+    private static void sortPairs(long[] records, int width) {
+        int count = records.length / width;
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(records, width, i, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(records, width, 0, end);
+            siftDown(records, width, 0, end);
+        }
+    }
+
+    private static void siftDown(long[] records, int width, int i, int count) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < count && compareRecords(records, width, left, largest) > 0) {
+                largest = left;
+            }
+            if (right < count && compareRecords(records, width, right, largest) > 0) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(records, width, i, largest);
+            i = largest;
+        }
+    }
+
+    private static int compareRecords(long[] records, int width, int a, int b) {
+        for (int w = 0; w < width; w++) {
+            int cmp = Long.compareUnsigned(records[a * width + w], records[b * width + w]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static void swap(long[] records, int width, int a, int b) {
+        for (int w = 0; w < width; w++) {
+            long tmp = records[a * width + w];
+            records[a * width + w] = records[b * width + w];
+            records[b * width + w] = tmp;
+        }
+    }
+
+    /**
+     * Collects relationships (ideally already in order) and builds a graph
+     */
+    public static final class Builder {
+
+        // player most, player least, target most, target least per relationship
+        private long[] records;
+        private int size;
+        private boolean sorted = true;
+
+        /**
+         * @param expectedRelationships Capacity to start with, so building a large graph does not
+         *                              copy the records on every doubling
+         */
+        public Builder(int expectedRelationships) {
+            records = new long[4 * Math.max(16, expectedRelationships)];
+        }
+
+        /**
+         * Add one relationship
+         */
+        public void add(UUID playerUUID, UUID targetUUID) {
+            add(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits(),
+                    targetUUID.getMostSignificantBits(), targetUUID.getLeastSignificantBits());
+        }
+
+        private void add(long playerMost, long playerLeast, long targetMost, long targetLeast) {
+            if (size * 4 == records.length) {
+                records = Arrays.copyOf(records, records.length * 2);
+            }
+            int base = size * 4;
+            records[base] = playerMost;
+            records[base + 1] = playerLeast;
+            records[base + 2] = targetMost;
+            records[base + 3] = targetLeast;
+            if (sorted && size > 0 && compareRecords(records, 4, size - 1, size) > 0) {
+                sorted = false;
+            }
+            size++;
+        }
+
+        /**
+         * Build the graph; rows that arrived out of order are sorted and duplicates dropped
+         */
+        public IgnoreGraph build() {
+            // Only the first size records are read, so spare capacity needs no trimming unless sorting
+            long[] input = records;
+            if (!sorted) {
+                if (input.length != size * 4) {
+                    input = Arrays.copyOf(records, size * 4);
+                }
+                sortPairs(input, 4);
+            }
+
+            long[] players = new long[size * 2];
+            int[] offsets = new int[size + 1];
+            long[] targets = new long[size * 2];
+            int playerCount = 0;
+            int targetCount = 0;
+
+            for (int i = 0; i < size; i++) {
+                int base = i * 4;
+                if (i > 0 && compareRecords(input, 4, i - 1, i) == 0) {
+                    continue;
+                }
+                boolean newPlayer = playerCount == 0
+                        || players[2 * (playerCount - 1)] != input[base]
+                        || players[2 * (playerCount - 1) + 1] != input[base + 1];
+                if (newPlayer) {
+                    players[2 * playerCount] = input[base];
+                    players[2 * playerCount + 1] = input[base + 1];
+                    offsets[playerCount] = targetCount;
+                    playerCount++;
+                }
+                targets[2 * targetCount] = input[base + 2];
+                targets[2 * targetCount + 1] = input[base + 3];
+                targetCount++;
+            }
+            offsets[playerCount] = targetCount;
+
+            return new IgnoreGraph(Arrays.copyOf(players, playerCount * 2),
+                    Arrays.copyOf(offsets, playerCount + 1),
+                    targetCount == size ? targets : Arrays.copyOf(targets, targetCount * 2));
+        }
+    }
+
+    /**
+     * Write the graph to a checksummed binary snapshot
+     * The file is written next to the target and moved into place, so a crash never leaves half a snapshot
+     * @param watermark Database state the graph corresponds to, checked when loading
+     */
+    public void save(File file, long[] watermark) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream raw = new FileOutputStream(temp);
+             BufferedOutputStream buffered = new BufferedOutputStream(raw, 1 << 16)) {
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(watermark[0]);
+            out.writeLong(watermark[1]);
+            out.writeInt(playerCount());
+            out.writeInt(relationshipCount());
+            for (long value : players) {
+                out.writeLong(value);
+            }
+            for (int value : offsets) {
+                out.writeInt(value);
+            }
+            for (long value : targets) {
+                out.writeLong(value);
+            }
+            out.flush();
+
+            // Trailer is not part of the checksum
+            new DataOutputStream(buffered).writeLong(checked.getChecksum().getValue());
+            buffered.flush();
+            raw.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot written by {@link #save}
+     * @param watermark Current database state; the snapshot is only used if it was written for the same state
+     * @return the graph, or null if the file is missing, corrupt or stale
+     */
+    public static IgnoreGraph load(File file, long[] watermark) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (BufferedInputStream buffered = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            CheckedInputStream checked = new CheckedInputStream(buffered, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            if (in.readLong() != watermark[0] || in.readLong() != watermark[1]) {
+                return null;
+            }
+
+            // The counts size the arrays before the checksum can be verified, so check them against
+            // the database row count and the file length rather than trusting them
+            int playerCount = in.readInt();
+            int relationshipCount = in.readInt();
+            if (relationshipCount != watermark[0] || playerCount < 0 || playerCount > relationshipCount) {
+                return null;
+            }
+            long expectedLength = 40L + playerCount * 16L + (playerCount + 1L) * 4L + relationshipCount * 16L;
+            if (file.length() != expectedLength) {
+                return null;
+            }
+
+            long[] players = new long[playerCount * 2];
+            int[] offsets = new int[playerCount + 1];
+            long[] targets = new long[relationshipCount * 2];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = in.readLong();
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readInt();
+            }
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = in.readLong();
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (new DataInputStream(buffered).readLong() != expected) {
+                return null;
+            }
+            if (offsets[0] != 0 || offsets[playerCount] != relationshipCount) {
+                return null;
+            }
+            for (int i = 0; i < playerCount; i++) {
+                if (offsets[i] > offsets[i + 1]) {
+                    return null;
+                }
+            }
+            return new IgnoreGraph(players, offsets, targets);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
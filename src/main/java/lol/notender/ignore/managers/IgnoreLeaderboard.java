@@ -0,0 +1,85 @@
+package lol.notender.ignore.managers;
+
+import java.util.*;
+
+/**
+ * Per-target ignore counters for moderation, kept sorted so the most ignored
+ * players can be listed without scanning the database
+ */
+public class IgnoreLeaderboard {
+
+    /**
+     * A player and how many others are ignoring them
+     */
+    public record Entry(UUID playerUUID, int count) {
+    }
+
+    // Highest count first, ties broken by UUID so entries stay distinct
+    private static final Comparator<Entry> RANKING_ORDER = Comparator
+            .comparingInt(Entry::count).reversed()
+            .thenComparing(Entry::playerUUID);
+
+    // Key: ignored player UUID, Value: number of players ignoring them
+    private final Map<UUID, Integer> counts = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(RANKING_ORDER);
+
+    /**
+     * Replace all counters with counts aggregated from the database
+     */
+    public synchronized void seed(Map<UUID, Integer> targetCounts) {
+        counts.clear();
+        ranking.clear();
+        for (Map.Entry<UUID, Integer> entry : targetCounts.entrySet()) {
+            if (entry.getValue() > 0) {
+                counts.put(entry.getKey(), entry.getValue());
+                ranking.add(new Entry(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Record that someone started ignoring the target
+     */
+    public synchronized void increment(UUID targetUUID) {
+        adjust(targetUUID, 1);
+    }
+
+    /**
+     * Record that someone stopped ignoring the target
+     */
+    public synchronized void decrement(UUID targetUUID) {
+        adjust(targetUUID, -1);
+    }
+
+    private void adjust(UUID targetUUID, int delta) {
+        int previous = counts.getOrDefault(targetUUID, 0);
+        int updated = Math.max(0, previous + delta);
+        if (previous == updated) {
+            return;
+        }
+
+        if (previous > 0) {
+            ranking.remove(new Entry(targetUUID, previous));
+        }
+        if (updated > 0) {
+            counts.put(targetUUID, updated);
+            ranking.add(new Entry(targetUUID, updated));
+        } else {
+            counts.remove(targetUUID);
+        }
+    }
+
+    /**
+     * Get the n most ignored players, highest count first
+     */
+    public synchronized List<Entry> top(int n) {
+        List<Entry> result = new ArrayList<>(Math.min(n, ranking.size()));
+        for (Entry entry : ranking) {
+            if (result.size() >= n) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+}
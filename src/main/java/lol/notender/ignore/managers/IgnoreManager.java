@@ -1,33 +1,203 @@
 package lol.notender.ignore.managers;
 
+import lol.notender.ignore.api.IgnoreChangeListener;
+import lol.notender.ignore.api.IgnoreService;
+import lol.notender.ignore.audit.AuditEventType;
+import lol.notender.ignore.audit.AuditLog;
 import lol.notender.ignore.database.DatabaseManager;
+import lol.notender.ignore.database.IgnorePair;
+import lol.notender.ignore.database.WriteQueue;
+import lol.notender.ignore.jfr.CacheLookupEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
 
 /**
  * Manages ignore operations and caching for better performance
+ * Also serves the public {@link IgnoreService} used by other plugins
  */
-public class IgnoreManager {
+public class IgnoreManager implements IgnoreService {
 
     private final DatabaseManager databaseManager;
+    private final AuditLog auditLog;
+    private final WriteQueue writeQueue;
+    private final IgnoreThrottle throttle;
 
     // Cache for better performance - stores ignore relationships in memory
-    // Key: Player UUID, Value: Set of ignored player UUIDs
+    // Key: Player UUID, Value: immutable snapshot of ignored player UUIDs
+    // Snapshots are never modified; writers publish a new one through compute(), so readers
+    // (including async chat threads) take no lock and always see a consistent set.
+    // An empty snapshot means "loaded, ignores nobody"; a missing key means "not loaded".
     private final Map<UUID, Set<UUID>> ignoreCache = new ConcurrentHashMap<>();
 
-    public IgnoreManager(DatabaseManager databaseManager) {
+    // Reverse of ignoreCache: Key: ignored player UUID, Value: immutable set of cached players ignoring them
+    // Updated inside the same compute() as the forward entry, so it only ever lags by the change in flight
+    private final Map<UUID, Set<UUID>> ignorersIndex = new ConcurrentHashMap<>();
+
+    private final List<IgnoreChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    // How many players are ignoring each player, kept in step with every add/remove
+    private final IgnoreLeaderboard leaderboard = new IgnoreLeaderboard();
+
+    // Full-residency mode (null graph when disabled): the whole ignore_list in memory, plus the
+    // complete rows of players changed since the graph was built, which take precedence over it
+    private final File residentSnapshotFile;
+    // Folding publishes the new graph before dropping the folded overlay rows, so readers must
+    // read the overlay first and the graph after it. Graph replacements hold residentLock.
+    private volatile IgnoreGraph residentGraph;
+    private final Map<UUID, Set<UUID>> residentOverlay = new ConcurrentHashMap<>();
+    private final Object residentLock = new Object();
+    private boolean residentFromSnapshot;
+
+    /**
+     * @param residentSnapshotFile Snapshot file for full-residency mode, or null to read players from the database on demand
+     */
+    public IgnoreManager(DatabaseManager databaseManager, AuditLog auditLog,
+                         WriteQueue writeQueue, IgnoreThrottle throttle, File residentSnapshotFile) {
         this.databaseManager = databaseManager;
-        loadIgnoreCache();
+        this.auditLog = auditLog;
+        this.writeQueue = writeQueue;
+        this.throttle = throttle;
+        this.residentSnapshotFile = residentSnapshotFile;
+
+        if (residentSnapshotFile != null) {
+            loadResidentGraph();
+        }
+        leaderboard.seed(residentGraph != null
+                ? residentGraph.countByTarget()
+                : databaseManager.getIgnoreCountsByTarget());
+    }
+
+    /**
+     * Load the resident graph from the snapshot file if it matches the database,
+     * otherwise stream the whole ignore_list from the database
+     */
+    private void loadResidentGraph() {
+        long[] watermark = databaseManager.getIgnoreListWatermark();
+        try {
+            residentGraph = IgnoreGraph.load(residentSnapshotFile, watermark);
+        } catch (IOException | RuntimeException e) {
+            // A damaged snapshot is only a missed shortcut, fall back to a full load
+            residentGraph = null;
+        }
+        residentFromSnapshot = residentGraph != null;
+        if (residentGraph == null) {
+            residentGraph = loadResidentGraphFromDatabase(watermark[0]);
+        }
+    }
+
+    /**
+     * Build the resident graph with one streaming query
+     * @param expectedRelationships Approximate row count, to size the builder up front
+     * @return the graph, or null if the query failed (full residency is then left off)
+     */
+    private IgnoreGraph loadResidentGraphFromDatabase(long expectedRelationships) {
+        IgnoreGraph.Builder builder = new IgnoreGraph.Builder(
+                (int) Math.min(Math.max(0, expectedRelationships), Integer.MAX_VALUE / 4));
+        if (!databaseManager.forEachIgnore(builder::add)) {
+            return null;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Write the resident graph, including changes made since startup, to the snapshot file
+     * Call after the write queue has been flushed, so the recorded database state matches the graph.
+     * If changes are still queued (the final flush failed) the graph holds rows the database
+     * does not, so the old snapshot is deleted instead and the next start loads from the database.
+     */
+    public void saveResidentGraph() throws IOException {
+        IgnoreGraph graph = residentGraph;
+        if (graph == null) {
+            return;
+        }
+        if (writeQueue.getPendingCount() > 0) {
+            deleteResidentSnapshot();
+            return;
+        }
+        long[] watermark = databaseManager.getIgnoreListWatermark();
+        if (watermark[0] < 0) {
+            return;
+        }
+        synchronized (residentLock) {
+            residentGraph.withRows(residentOverlay).save(residentSnapshotFile, watermark);
+        }
+    }
+
+    /**
+     * Merge the overlay rows into a new resident graph, so players who changed their list do not
+     * keep a full copy of it in the overlay for the whole uptime. Rebuilds the graph, so call it
+     * off the main thread. Rows changed again while folding stay in the overlay.
+     * @param minPlayers Leave the overlay alone while it holds fewer players than this; a rebuild
+     *                   costs the size of the whole graph however few rows it merges
+     * @return number of players folded
+     */
+    public int foldResidentOverlay(int minPlayers) {
+        synchronized (residentLock) {
+            IgnoreGraph graph = residentGraph;
+            if (graph == null || residentOverlay.isEmpty() || residentOverlay.size() < minPlayers) {
+                return 0;
+            }
+            Map<UUID, Set<UUID>> folded = new HashMap<>(residentOverlay);
+            residentGraph = graph.withRows(folded);
+            for (Map.Entry<UUID, Set<UUID>> entry : folded.entrySet()) {
+                residentOverlay.remove(entry.getKey(), entry.getValue());
+            }
+            return folded.size();
+        }
+    }
+
+    /**
+     * Get number of players whose rows are held in the overlay on top of the resident graph
+     */
+    public int getResidentOverlaySize() {
+        return residentOverlay.size();
+    }
+
+    /**
+     * Delete the snapshot file, for when the graph in memory may not match the database
+     */
+    public void deleteResidentSnapshot() throws IOException {
+        if (residentSnapshotFile != null) {
+            Files.deleteIfExists(residentSnapshotFile.toPath());
+        }
+    }
+
+    /**
+     * Check if the whole ignore graph is held in memory
+     */
+    public boolean isFullResidency() {
+        return residentGraph != null;
+    }
+
+    /**
+     * Check if the resident graph came from the snapshot file rather than a full database load
+     */
+    public boolean isResidentFromSnapshot() {
+        return residentFromSnapshot;
     }
 
     /**
-     * Load all ignore data from database into cache
+     * Get number of relationships in the resident graph (changes since startup not included)
      */
-    private void loadIgnoreCache() {
+    public int getResidentRelationshipCount() {
+        IgnoreGraph graph = residentGraph;
+        return graph != null ? graph.relationshipCount() : 0;
+    }
+
+    /**
+     * Load ignore data of everyone already online into the cache (plugin enable or reload)
+     * Kept out of the constructor so the manager can be built without a running server
+     */
+    public void loadOnlinePlayers() {
         // Load ignore data for all online players
         for (Player player : Bukkit.getOnlinePlayers()) {
             loadPlayerIgnoreData(player.getUniqueId());
@@ -36,73 +206,260 @@ public class IgnoreManager {
 
     /**
      * Load ignore data for a specific player
+     * Does nothing if the player is already cached, so a slow load never overwrites a newer change
      */
     public void loadPlayerIgnoreData(UUID playerUUID) {
-        Set<UUID> ignoredPlayers = databaseManager.getIgnoredPlayers(playerUUID);
-        if (!ignoredPlayers.isEmpty()) {
-            ignoreCache.put(playerUUID, new HashSet<>(ignoredPlayers));
+        cacheIfAbsent(playerUUID);
+    }
+
+    /**
+     * Load a player into the cache unless already there
+     * @return the cached snapshot
+     */
+    private Set<UUID> cacheIfAbsent(UUID playerUUID) {
+        return ignoreCache.computeIfAbsent(playerUUID, key -> {
+            Set<UUID> snapshot = loadSnapshot(key);
+            updateIgnorers(key, null, snapshot);
+            return snapshot;
+        });
+    }
+
+    /**
+     * Bring the reverse index in line with a change of a player's cached snapshot
+     * @param before Previous cached snapshot, or null if the player was not cached
+     * @param after New cached snapshot, or null if the player is leaving the cache
+     */
+    private void updateIgnorers(UUID playerUUID, Set<UUID> before, Set<UUID> after) {
+        if (before != null) {
+            for (UUID targetUUID : before) {
+                if (after == null || !after.contains(targetUUID)) {
+                    ignorersIndex.computeIfPresent(targetUUID,
+                            (key, ignorers) -> ignorers.size() == 1 ? null : withChange(ignorers, playerUUID, false));
+                }
+            }
+        }
+        if (after != null) {
+            for (UUID targetUUID : after) {
+                if (before == null || !before.contains(targetUUID)) {
+                    ignorersIndex.compute(targetUUID,
+                            (key, ignorers) -> ignorers == null ? Set.of(playerUUID) : withChange(ignorers, playerUUID, true));
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a player's ignore list from the resident graph, or from the database including
+     * changes still waiting in the write queue
+     */
+    private Set<UUID> loadSnapshot(UUID playerUUID) {
+        if (residentGraph != null) {
+            Set<UUID> changed = residentOverlay.get(playerUUID);
+            return changed != null ? changed : residentGraph.row(playerUUID);
         }
+        // Pending first: a flush between the two reads would otherwise drop a change from both
+        Map<UUID, Boolean> pendingChanges = writeQueue.getPendingChanges(playerUUID);
+        return Set.copyOf(WriteQueue.applyPending(databaseManager.getIgnoredPlayers(playerUUID), pendingChanges));
+    }
+
+    /**
+     * Check if the player may change their ignore list now (token bucket)
+     * Call before toggling so throttled requests never reach the database
+     */
+    public boolean tryAcquireWrite(UUID playerUUID) {
+        return throttle.tryAcquire(playerUUID);
     }
 
     /**
      * Toggle ignore status between two players
+     * The check and the change happen atomically for the player, so concurrent toggles
+     * from the same player are applied one after another
      * @param playerUUID The player who wants to ignore/unignore
      * @param targetUUID The player to be ignored/unignored
      * @return true if now ignoring, false if unignored
      */
     public boolean toggleIgnore(UUID playerUUID, UUID targetUUID) {
-        if (isIgnoring(playerUUID, targetUUID)) {
-            return removeIgnore(playerUUID, targetUUID);
-        } else {
-            return addIgnore(playerUUID, targetUUID);
-        }
+        return update(playerUUID, targetUUID, null);
     }
 
     /**
      * Add a player to ignore list
+     * @return true if now ignoring
      */
     public boolean addIgnore(UUID playerUUID, UUID targetUUID) {
-        // Update database
-        if (databaseManager.addIgnore(playerUUID, targetUUID)) {
-            // Update cache
-            ignoreCache.computeIfAbsent(playerUUID, k -> new HashSet<>()).add(targetUUID);
-            return true;
-        }
-        return false;
+        return update(playerUUID, targetUUID, true);
     }
 
     /**
      * Remove a player from ignore list
+     * @return false if not ignoring anymore
      */
     public boolean removeIgnore(UUID playerUUID, UUID targetUUID) {
-        // Update database
-        if (databaseManager.removeIgnore(playerUUID, targetUUID)) {
-            // Update cache
-            Set<UUID> playerIgnoreSet = ignoreCache.get(playerUUID);
-            if (playerIgnoreSet != null) {
-                playerIgnoreSet.remove(targetUUID);
-                // Remove empty sets to save memory
-                if (playerIgnoreSet.isEmpty()) {
-                    ignoreCache.remove(playerUUID);
+        return update(playerUUID, targetUUID, false);
+    }
+
+    /**
+     * Apply an ignore change for one player and publish the new snapshot
+     * The database write is queued; rapid toggles of the same target collapse into the final state
+     * @param desired true to ignore, false to unignore, null to toggle
+     * @return whether the player is ignoring the target afterwards
+     */
+    private boolean update(UUID playerUUID, UUID targetUUID, Boolean desired) {
+        boolean[] result = new boolean[2];
+
+        // compute() runs at most once at a time per key, which makes the whole
+        // read-check-write sequence linearizable per player
+        ignoreCache.compute(playerUUID, (key, current) -> {
+            Set<UUID> snapshot = current != null ? current : loadSnapshot(key);
+            boolean ignoring = snapshot.contains(targetUUID);
+            boolean wanted = desired != null ? desired : !ignoring;
+            result[0] = wanted;
+
+            if (wanted == ignoring) {
+                if (current == null) {
+                    updateIgnorers(key, null, snapshot);
                 }
+                return snapshot;
+            }
+            result[1] = true;
+
+            writeQueue.enqueue(key, targetUUID, wanted);
+            if (wanted) {
+                leaderboard.increment(targetUUID);
+                auditLog.record(AuditEventType.IGNORE_ADD, key, targetUUID);
+            } else {
+                leaderboard.decrement(targetUUID);
+                auditLog.record(AuditEventType.IGNORE_REMOVE, key, targetUUID);
+            }
+
+            Set<UUID> updated = withChange(snapshot, targetUUID, wanted);
+            if (residentGraph != null) {
+                residentOverlay.put(key, updated);
+            }
+            updateIgnorers(key, current, updated);
+            return updated;
+        });
+
+        // Notify outside compute() so listeners can query us freely
+        if (result[1]) {
+            notifyListeners(playerUUID, targetUUID, result[0]);
+        }
+
+        return result[0];
+    }
+
+    private void notifyListeners(UUID playerUUID, UUID targetUUID, boolean ignoring) {
+        for (IgnoreChangeListener listener : changeListeners) {
+            try {
+                listener.onIgnoreChanged(playerUUID, targetUUID, ignoring);
+            } catch (RuntimeException e) {
+                Bukkit.getLogger().log(Level.WARNING, "Lỗi trong IgnoreChangeListener", e);
+            }
+        }
+    }
+
+    /**
+     * Notify listeners of changes collected while publishing snapshots; call outside compute()
+     */
+    private void notifyListeners(List<IgnorePair> added, List<IgnorePair> removed) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        for (IgnorePair pair : removed) {
+            notifyListeners(pair.playerUUID(), pair.ignoredUUID(), false);
+        }
+        for (IgnorePair pair : added) {
+            notifyListeners(pair.playerUUID(), pair.ignoredUUID(), true);
+        }
+    }
+
+    /**
+     * Collect the relationships that differ between two snapshots of a player
+     */
+    private static void diff(UUID playerUUID, Set<UUID> before, Set<UUID> after,
+                             List<IgnorePair> added, List<IgnorePair> removed) {
+        for (UUID targetUUID : before) {
+            if (!after.contains(targetUUID)) {
+                removed.add(new IgnorePair(playerUUID, targetUUID));
+            }
+        }
+        for (UUID targetUUID : after) {
+            if (!before.contains(targetUUID)) {
+                added.add(new IgnorePair(playerUUID, targetUUID));
             }
-            return false; // Return false to indicate "not ignoring anymore"
         }
-        return true; // Return true to indicate "still ignoring" (operation failed)
+    }
+
+    /**
+     * Build a new immutable snapshot with the target added or removed
+     */
+    private static Set<UUID> withChange(Set<UUID> snapshot, UUID targetUUID, boolean ignoring) {
+        Set<UUID> updated = new HashSet<>(snapshot);
+        if (ignoring) {
+            updated.add(targetUUID);
+        } else {
+            updated.remove(targetUUID);
+        }
+        return Set.copyOf(updated);
     }
 
     /**
      * Check if a player is ignoring another player
      */
+    @Override
     public boolean isIgnoring(UUID playerUUID, UUID targetUUID) {
+        CacheLookupEvent event = new CacheLookupEvent();
+        if (!event.isEnabled()) {
+            return lookup(playerUUID, targetUUID, null);
+        }
+
+        event.begin();
+        event.ignoring = lookup(playerUUID, targetUUID, event);
+        if (event.shouldCommit()) {
+            event.player = playerUUID.toString();
+            event.target = targetUUID.toString();
+            event.commit();
+        }
+        return event.ignoring;
+    }
+
+    /**
+     * Answer an ignore check from the cheapest source that knows it
+     * @param event lookup event to record the outcome on, null when not recording
+     */
+    private boolean lookup(UUID playerUUID, UUID targetUUID, CacheLookupEvent event) {
         // First check cache for better performance
         Set<UUID> playerIgnoreSet = ignoreCache.get(playerUUID);
         if (playerIgnoreSet != null) {
+            if (event != null) {
+                event.outcome = CacheLookupEvent.HIT;
+            }
             return playerIgnoreSet.contains(targetUUID);
         }
 
+        // Full residency answers everything from memory
+        if (residentGraph != null) {
+            if (event != null) {
+                event.outcome = CacheLookupEvent.RESIDENT;
+            }
+            Set<UUID> changed = residentOverlay.get(playerUUID);
+            return changed != null ? changed.contains(targetUUID) : residentGraph.contains(playerUUID, targetUUID);
+        }
+
+        // A change that has not been written yet wins over the database
+        Boolean pending = writeQueue.getPending(playerUUID, targetUUID);
+        if (pending != null) {
+            if (event != null) {
+                event.outcome = CacheLookupEvent.PENDING;
+            }
+            return pending;
+        }
+
         // If not in cache, check database and update cache
         boolean isIgnoring = databaseManager.isIgnoring(playerUUID, targetUUID);
+        if (event != null) {
+            event.outcome = isIgnoring ? CacheLookupEvent.LOADING : CacheLookupEvent.MISS;
+        }
         if (isIgnoring) {
             // Load full ignore data for this player into cache
             loadPlayerIgnoreData(playerUUID);
@@ -113,20 +470,188 @@ public class IgnoreManager {
 
     /**
      * Get all players that a specific player is ignoring
+     * The returned set is an immutable snapshot
      */
+    @Override
     public Set<UUID> getIgnoredPlayers(UUID playerUUID) {
         Set<UUID> ignoredPlayers = ignoreCache.get(playerUUID);
         if (ignoredPlayers != null) {
-            return new HashSet<>(ignoredPlayers); // Return copy to prevent modification
+            return ignoredPlayers;
         }
 
         // If not in cache, load from database
-        ignoredPlayers = databaseManager.getIgnoredPlayers(playerUUID);
-        if (!ignoredPlayers.isEmpty()) {
-            ignoreCache.put(playerUUID, new HashSet<>(ignoredPlayers));
+        return cacheIfAbsent(playerUUID);
+    }
+
+    /**
+     * Remove recipients that are ignoring the sender
+     */
+    @Override
+    public List<UUID> filterRecipients(UUID senderUUID, Collection<UUID> recipients) {
+        Set<UUID> blocked = findIgnoringRecipients(senderUUID, recipients);
+        if (blocked.isEmpty()) {
+            return new ArrayList<>(recipients);
+        }
+        List<UUID> allowed = new ArrayList<>(recipients.size());
+        for (UUID recipientUUID : recipients) {
+            if (!blocked.contains(recipientUUID)) {
+                allowed.add(recipientUUID);
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Find the recipients of a message that are ignoring its sender
+     * Cached recipients are answered with one read of the sender's entry in the reverse index;
+     * only recipients that are not cached fall back to isIgnoring
+     */
+    public Set<UUID> findIgnoringRecipients(UUID senderUUID, Collection<UUID> recipients) {
+        // Check who is cached before reading the reverse index: a player's entries are added
+        // to the index before they appear in the cache, so the index covers all of them
+        List<UUID> cached = new ArrayList<>(recipients.size());
+        Set<UUID> blocked = new HashSet<>();
+        for (UUID recipientUUID : recipients) {
+            if (ignoreCache.containsKey(recipientUUID)) {
+                cached.add(recipientUUID);
+            } else if (isIgnoring(recipientUUID, senderUUID)) {
+                blocked.add(recipientUUID);
+            }
+        }
+
+        Set<UUID> ignorers = ignorersOf(senderUUID);
+        if (!ignorers.isEmpty()) {
+            for (UUID recipientUUID : cached) {
+                if (ignorers.contains(recipientUUID)) {
+                    blocked.add(recipientUUID);
+                }
+            }
         }
+        return blocked;
+    }
+
+    /**
+     * Get the cached players that are ignoring the sender
+     */
+    @Override
+    public Set<UUID> ignorersOf(UUID senderUUID) {
+        return ignorersIndex.getOrDefault(senderUUID, Collections.emptySet());
+    }
+
+    @Override
+    public void addChangeListener(IgnoreChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(IgnoreChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Get the cached ignore list for a player without touching the database
+     * Returns an empty set if the player's data is not cached
+     */
+    public Set<UUID> getCachedIgnoredPlayers(UUID playerUUID) {
+        return ignoreCache.getOrDefault(playerUUID, Collections.emptySet());
+    }
 
-        return ignoredPlayers;
+    /**
+     * Get a player's cached snapshot
+     * @return the snapshot, or null if the player is not cached
+     */
+    public Set<UUID> getCachedSnapshot(UUID playerUUID) {
+        return ignoreCache.get(playerUUID);
+    }
+
+    /**
+     * Get the UUIDs of all cached players
+     */
+    public List<UUID> getCachedPlayers() {
+        return new ArrayList<>(ignoreCache.keySet());
+    }
+
+    /**
+     * Replace a player's cached snapshot with rows read from the database, used to repair drift
+     * Nothing happens if the snapshot changed since it was read or the player has queued writes,
+     * since the database rows would then be outdated
+     * @param expected The snapshot that was compared with the database
+     * @param stored The player's rows as read from the database
+     * @return true if the snapshot was replaced
+     */
+    public boolean replaceSnapshot(UUID playerUUID, Set<UUID> expected, Set<UUID> stored) {
+        boolean[] replaced = new boolean[1];
+        List<IgnorePair> added = new ArrayList<>();
+        List<IgnorePair> removed = new ArrayList<>();
+
+        ignoreCache.computeIfPresent(playerUUID, (key, current) -> {
+            if (current != expected || writeQueue.hasPending(key)) {
+                return current;
+            }
+
+            Set<UUID> snapshot = Set.copyOf(stored);
+            diff(key, current, snapshot, added, removed);
+            for (IgnorePair pair : removed) {
+                leaderboard.decrement(pair.ignoredUUID());
+            }
+            for (IgnorePair pair : added) {
+                leaderboard.increment(pair.ignoredUUID());
+            }
+            if (residentGraph != null) {
+                residentOverlay.put(key, snapshot);
+            }
+            updateIgnorers(key, current, snapshot);
+            replaced[0] = true;
+            return snapshot;
+        });
+
+        notifyListeners(added, removed);
+        return replaced[0];
+    }
+
+    /**
+     * Drop relationships deleted from the database by the retention purge from the cache,
+     * the resident graph and the leaderboard
+     * Pairs with a queued change are left alone: the queue decides their final state and
+     * its write has already been counted
+     * @param purged Relationships deleted from ignore_list
+     */
+    public void applyPurge(List<IgnorePair> purged) {
+        Map<UUID, Set<UUID>> purgedByPlayer = new HashMap<>();
+        List<IgnorePair> removed = new ArrayList<>();
+        for (IgnorePair pair : purged) {
+            if (writeQueue.getPending(pair.playerUUID(), pair.ignoredUUID()) != null) {
+                continue;
+            }
+            purgedByPlayer.computeIfAbsent(pair.playerUUID(), key -> new HashSet<>()).add(pair.ignoredUUID());
+            leaderboard.decrement(pair.ignoredUUID());
+            removed.add(pair);
+        }
+
+        boolean resident = residentGraph != null;
+        for (Map.Entry<UUID, Set<UUID>> entry : purgedByPlayer.entrySet()) {
+            Set<UUID> targets = entry.getValue();
+            Set<UUID> cached = ignoreCache.computeIfPresent(entry.getKey(), (key, current) -> {
+                Set<UUID> snapshot = without(current, targets);
+                if (resident) {
+                    residentOverlay.put(key, snapshot);
+                }
+                updateIgnorers(key, current, snapshot);
+                return snapshot;
+            });
+            if (cached == null && resident) {
+                residentOverlay.compute(entry.getKey(),
+                        (key, changed) -> without(changed != null ? changed : residentGraph.row(key), targets));
+            }
+        }
+
+        notifyListeners(List.of(), removed);
+    }
+
+    private static Set<UUID> without(Set<UUID> snapshot, Set<UUID> targets) {
+        Set<UUID> updated = new HashSet<>(snapshot);
+        updated.removeAll(targets);
+        return Set.copyOf(updated);
     }
 
     /**
@@ -160,14 +685,103 @@ public class IgnoreManager {
         if (ignoredPlayers != null) {
             return ignoredPlayers.size();
         }
+        if (residentGraph != null || writeQueue.hasPending(playerUUID)) {
+            return loadSnapshot(playerUUID).size();
+        }
         return databaseManager.getIgnoreCount(playerUUID);
     }
 
+    /**
+     * Reload cached players and counters from the database after rows were changed behind our back
+     * (bulk imports). Does database work, so call it off the main thread.
+     * @return false if the resident graph could not be reloaded and no longer matches the database
+     */
+    public boolean reloadFromDatabase() {
+        synchronized (residentLock) {
+            return reloadFromDatabaseLocked();
+        }
+    }
+
+    private boolean reloadFromDatabaseLocked() {
+        // Write our own queued changes first so what we read back includes them
+        Map<UUID, Set<UUID>> overlayBefore = new HashMap<>(residentOverlay);
+        writeQueue.flush();
+
+        // Relationships that appeared or disappeared, reported to listeners at the end
+        List<IgnorePair> added = new ArrayList<>();
+        List<IgnorePair> removed = new ArrayList<>();
+
+        boolean reloadedGraph = true;
+        IgnoreGraph previous = residentGraph;
+        if (previous != null) {
+            IgnoreGraph reloaded = loadResidentGraphFromDatabase(previous.relationshipCount());
+            reloadedGraph = reloaded != null;
+            if (reloaded != null) {
+                // Our flushed overlay rows are in the database now, so they only differ where
+                // the rows were changed behind our back
+                if (!changeListeners.isEmpty()) {
+                    previous.withRows(overlayBefore).diff(reloaded, added, removed);
+                }
+                residentGraph = reloaded;
+                // Drop overlay rows now contained in the graph; rows changed meanwhile stay on top
+                for (Map.Entry<UUID, Set<UUID>> entry : overlayBefore.entrySet()) {
+                    residentOverlay.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        for (UUID playerUUID : new ArrayList<>(ignoreCache.keySet())) {
+            ignoreCache.computeIfPresent(playerUUID, (key, current) -> {
+                Set<UUID> snapshot = loadSnapshot(key);
+                // Without the resident graph only cached players can be compared; listeners
+                // read everyone else from the database anyway
+                if (previous == null) {
+                    diff(key, current, snapshot, added, removed);
+                }
+                updateIgnorers(key, current, snapshot);
+                return snapshot;
+            });
+        }
+
+        IgnoreGraph graph = residentGraph;
+        leaderboard.seed(graph != null
+                ? graph.withRows(residentOverlay).countByTarget()
+                : databaseManager.getIgnoreCountsByTarget());
+
+        notifyListeners(added, removed);
+        return reloadedGraph;
+    }
+
+    /**
+     * Get the n most ignored players, highest count first
+     */
+    public List<IgnoreLeaderboard.Entry> getMostIgnored(int n) {
+        return leaderboard.top(n);
+    }
+
     /**
      * Remove player from cache when they disconnect (memory optimization)
      */
     public void removeFromCache(UUID playerUUID) {
-        ignoreCache.remove(playerUUID);
+        ignoreCache.computeIfPresent(playerUUID, (key, current) -> {
+            updateIgnorers(key, current, null);
+            return null;
+        });
+        throttle.remove(playerUUID);
+    }
+
+    /**
+     * Get the write throttle (for statistics)
+     */
+    public IgnoreThrottle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Get the write-behind queue (for statistics)
+     */
+    public WriteQueue getWriteQueue() {
+        return writeQueue;
     }
 
     /**
@@ -181,6 +795,11 @@ public class IgnoreManager {
      * Clear all cache (for debugging or reload purposes)
      */
     public void clearCache() {
-        ignoreCache.clear();
+        for (UUID playerUUID : new ArrayList<>(ignoreCache.keySet())) {
+            ignoreCache.computeIfPresent(playerUUID, (key, current) -> {
+                updateIgnorers(key, current, null);
+                return null;
+            });
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package lol.notender.ignore.managers;
+
+import lol.notender.ignore.database.DatabaseManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background job that detects and repairs drift between the ignore cache and ignore_list.
+ * Each run checks a small slice of cached players, comparing an order-independent digest of
+ * their cached snapshot with one computed over their database rows, and reloads only the
+ * players whose digests differ. Runs are capped by a row budget so the job never competes
+ * with chat lookups for the connection.
+ */
+public class IgnoreReconciler {
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final IgnoreManager ignoreManager;
+    private final int playersPerRun;
+    private final int maxRowsPerRun;
+    private final long intervalTicks;
+
+    // Players of the current pass and how far we got; only touched by the reconcile task
+    private List<UUID> pass = new ArrayList<>();
+    private int cursor;
+
+    private final LongAdder passes = new LongAdder();
+    private final LongAdder playersChecked = new LongAdder();
+    private final LongAdder rowsScanned = new LongAdder();
+    private final LongAdder playersDrifted = new LongAdder();
+    private final LongAdder playersRepaired = new LongAdder();
+
+    private BukkitTask task;
+
+    public IgnoreReconciler(JavaPlugin plugin, DatabaseManager databaseManager, IgnoreManager ignoreManager,
+                            int playersPerRun, int maxRowsPerRun, long intervalTicks) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.ignoreManager = ignoreManager;
+        this.playersPerRun = Math.max(1, playersPerRun);
+        this.maxRowsPerRun = Math.max(1, maxRowsPerRun);
+        this.intervalTicks = Math.max(1, intervalTicks);
+    }
+
+    /**
+     * Start reconciling in the background
+     */
+    public void start() {
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+                plugin, this::runSlice, intervalTicks, intervalTicks);
+    }
+
+    /**
+     * Stop reconciling
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Check the next slice of players, staying within the per-run player and row budget
+     */
+    private synchronized void runSlice() {
+        Thread thread = Thread.currentThread();
+        int priority = thread.getPriority();
+        thread.setPriority(Thread.MIN_PRIORITY);
+        try {
+            int checked = 0;
+            int rows = 0;
+            while (checked < playersPerRun && rows < maxRowsPerRun) {
+                if (cursor >= pass.size()) {
+                    // Start a new pass over whoever is cached now
+                    pass = ignoreManager.getCachedPlayers();
+                    cursor = 0;
+                    if (pass.isEmpty()) {
+                        return;
+                    }
+                    passes.increment();
+                }
+
+                UUID playerUUID = pass.get(cursor++);
+                rows += reconcile(playerUUID);
+                checked++;
+            }
+        } finally {
+            thread.setPriority(priority);
+        }
+    }
+
+    /**
+     * Compare one player's cache entry with the database and repair it if they differ
+     * @return number of database rows read
+     */
+    private int reconcile(UUID playerUUID) {
+        // Queued writes make the database legitimately behind; check again on a later pass
+        if (ignoreManager.getWriteQueue().hasPending(playerUUID)) {
+            return 0;
+        }
+        Set<UUID> cached = ignoreManager.getCachedSnapshot(playerUUID);
+        if (cached == null) {
+            return 0;
+        }
+
+        Set<UUID> stored = databaseManager.readIgnoredPlayers(playerUUID);
+        if (stored == null) {
+            // Read failed; an empty result here would wipe the player's cache
+            return 0;
+        }
+        playersChecked.increment();
+        rowsScanned.add(stored.size());
+
+        if (digest(cached) == digest(stored)) {
+            return stored.size();
+        }
+
+        playersDrifted.increment();
+        if (ignoreManager.replaceSnapshot(playerUUID, cached, stored)) {
+            playersRepaired.increment();
+        }
+        return stored.size();
+    }
+
+    /**
+     * Order-independent 64-bit digest of a set of UUIDs
+     */
+    static long digest(Set<UUID> uuids) {
+        long sum = uuids.size();
+        for (UUID uuid : uuids) {
+            sum += mix(uuid.getMostSignificantBits() ^ Long.rotateLeft(uuid.getLeastSignificantBits(), 32));
+        }
+        return sum;
+    }
+
+    // SplitMix64 finalizer, spreads similar UUIDs far apart so sums don't cancel out
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Get number of completed passes over the cached players
+     */
+    public long getPassCount() {
+        return passes.sum();
+    }
+
+    /**
+     * Get number of players compared with the database
+     */
+    public long getPlayersChecked() {
+        return playersChecked.sum();
+    }
+
+    /**
+     * Get number of database rows read for comparison
+     */
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    /**
+     * Get number of players whose cache differed from the database
+     */
+    public long getPlayersDrifted() {
+        return playersDrifted.sum();
+    }
+
+    /**
+     * Get number of drifted players reloaded from the database
+     */
+    public long getPlayersRepaired() {
+        return playersRepaired.sum();
+    }
+}
@@ -0,0 +1,107 @@
+package lol.notender.ignore.managers;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-player token bucket limiting how often a player can change their ignore list.
+ * Each bucket is a single AtomicLong packing the refill timestamp and the token count,
+ * updated with compare-and-set, so checks are lock-free and the map stays compact.
+ */
+public class IgnoreThrottle {
+
+    // Low bits hold tokens in thousandths, high bits the last refill time in millis since startedAt
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final int MAX_CAPACITY = (int) (TOKEN_MASK / 1000);
+
+    private final int capacity;
+    private final double refillPerSecond;
+    private final long capacityMilli;
+    private final long startedAt = System.currentTimeMillis();
+
+    // Key: player UUID, Value: packed bucket state
+    private final Map<UUID, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder throttled = new LongAdder();
+
+    public IgnoreThrottle(int capacity, double refillPerSecond) {
+        this.capacity = Math.max(1, Math.min(MAX_CAPACITY, capacity));
+        this.refillPerSecond = Math.max(0, refillPerSecond);
+        this.capacityMilli = this.capacity * 1000L;
+    }
+
+    /**
+     * Take one token from the player's bucket
+     * @return true if the action is allowed, false if the player is throttled
+     */
+    public boolean tryAcquire(UUID playerUUID) {
+        long now = System.currentTimeMillis() - startedAt;
+        AtomicLong bucket = buckets.computeIfAbsent(playerUUID, k -> new AtomicLong(pack(now, capacityMilli)));
+
+        while (true) {
+            long state = bucket.get();
+            long last = state >>> TOKEN_BITS;
+            long tokens = state & TOKEN_MASK;
+
+            // Thousandths of a token gained since the last refill (1 token/s == 1 per millisecond)
+            long gained = (long) (Math.max(0, now - last) * refillPerSecond);
+            long available = Math.min(capacityMilli, tokens + gained);
+            // Keep the old timestamp while nothing was gained so slow rates still accumulate
+            long refilledAt = gained > 0 ? now : last;
+
+            if (available < 1000) {
+                if (bucket.compareAndSet(state, pack(refilledAt, available))) {
+                    throttled.increment();
+                    return false;
+                }
+                continue;
+            }
+            if (bucket.compareAndSet(state, pack(refilledAt, available - 1000))) {
+                return true;
+            }
+        }
+    }
+
+    private static long pack(long millis, long tokens) {
+        return (millis << TOKEN_BITS) | tokens;
+    }
+
+    /**
+     * Forget a player's bucket when they disconnect
+     */
+    public void remove(UUID playerUUID) {
+        buckets.remove(playerUUID);
+    }
+
+    /**
+     * Get the maximum burst of ignore changes
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get how many tokens are regained per second
+     */
+    public double getRefillPerSecond() {
+        return refillPerSecond;
+    }
+
+    /**
+     * Get number of requests rejected since startup
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * Get number of players with a bucket
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,254 @@
+package lol.notender.ignore.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Case-insensitive index of online player names, maintained on join and quit.
+ * Readers work on an immutable sorted snapshot, so lookups and prefix completion
+ * take no lock and never lowercase the whole player list.
+ */
+public class PlayerNameIndex {
+
+    // Sorted lowercased names with the original names and UUIDs at the same positions
+    private static final class Snapshot {
+        final String[] keys;
+        final String[] names;
+        final UUID[] uuids;
+
+        Snapshot(String[] keys, String[] names, UUID[] uuids) {
+            this.keys = keys;
+            this.names = names;
+            this.uuids = uuids;
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(new String[0], new String[0], new UUID[0]);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    // Key: online player UUID, Value: name as indexed (needed to locate the entry on quit)
+    private final Map<UUID, String> onlineNames = new ConcurrentHashMap<>();
+
+    // Names of offline players, least recently used dropped first so the map stays bounded.
+    // Filled when players quit and by getName/resolveNames; completion only reads it.
+    // UUIDs Bukkit has no name for are stored as UNKNOWN_NAME so they are not looked up again.
+    private static final int MAX_OFFLINE_NAMES = 4096;
+    private static final String UNKNOWN_NAME = "";
+    private final Map<UUID, String> offlineNames = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                    return size() > MAX_OFFLINE_NAMES;
+                }
+            });
+
+    /**
+     * Index all players that are already online (plugin enable or reload)
+     */
+    public void indexOnlinePlayers() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            add(player.getUniqueId(), player.getName());
+        }
+    }
+
+    /**
+     * Add or rename a player in the index
+     */
+    public synchronized void add(UUID uuid, String name) {
+        String previous = onlineNames.get(uuid);
+        if (previous != null) {
+            remove(uuid);
+        }
+
+        Snapshot current = snapshot;
+        String key = name.toLowerCase(Locale.ROOT);
+        int pos = Arrays.binarySearch(current.keys, key);
+        if (pos >= 0) {
+            // Another online player holds the same name (should not happen), replace it
+            onlineNames.remove(current.uuids[pos]);
+            current = without(current, pos);
+            pos = Arrays.binarySearch(current.keys, key);
+        }
+        int insertAt = -pos - 1;
+
+        int size = current.keys.length;
+        String[] keys = new String[size + 1];
+        String[] names = new String[size + 1];
+        UUID[] uuids = new UUID[size + 1];
+        System.arraycopy(current.keys, 0, keys, 0, insertAt);
+        System.arraycopy(current.names, 0, names, 0, insertAt);
+        System.arraycopy(current.uuids, 0, uuids, 0, insertAt);
+        keys[insertAt] = key;
+        names[insertAt] = name;
+        uuids[insertAt] = uuid;
+        System.arraycopy(current.keys, insertAt, keys, insertAt + 1, size - insertAt);
+        System.arraycopy(current.names, insertAt, names, insertAt + 1, size - insertAt);
+        System.arraycopy(current.uuids, insertAt, uuids, insertAt + 1, size - insertAt);
+
+        onlineNames.put(uuid, name);
+        offlineNames.remove(uuid);
+        snapshot = new Snapshot(keys, names, uuids);
+    }
+
+    /**
+     * Remove a player from the index when they quit
+     */
+    public synchronized void remove(UUID uuid) {
+        String name = onlineNames.remove(uuid);
+        if (name == null) {
+            return;
+        }
+
+        Snapshot current = snapshot;
+        int pos = Arrays.binarySearch(current.keys, name.toLowerCase(Locale.ROOT));
+        if (pos >= 0 && current.uuids[pos].equals(uuid)) {
+            snapshot = without(current, pos);
+        }
+        // Keep the name around so completing and unignoring them needs no Bukkit lookup
+        offlineNames.put(uuid, name);
+    }
+
+    private static Snapshot without(Snapshot current, int pos) {
+        int size = current.keys.length;
+        if (size == 1) {
+            return EMPTY;
+        }
+        String[] keys = new String[size - 1];
+        String[] names = new String[size - 1];
+        UUID[] uuids = new UUID[size - 1];
+        System.arraycopy(current.keys, 0, keys, 0, pos);
+        System.arraycopy(current.names, 0, names, 0, pos);
+        System.arraycopy(current.uuids, 0, uuids, 0, pos);
+        System.arraycopy(current.keys, pos + 1, keys, pos, size - pos - 1);
+        System.arraycopy(current.names, pos + 1, names, pos, size - pos - 1);
+        System.arraycopy(current.uuids, pos + 1, uuids, pos, size - pos - 1);
+        return new Snapshot(keys, names, uuids);
+    }
+
+    /**
+     * Find an online player by exact name (case-insensitive)
+     * @return the player's UUID, or null if nobody online has that name
+     */
+    public UUID getExact(String name) {
+        Snapshot current = snapshot;
+        int pos = Arrays.binarySearch(current.keys, name.toLowerCase(Locale.ROOT));
+        return pos >= 0 ? current.uuids[pos] : null;
+    }
+
+    /**
+     * Find an online player the same way Bukkit.getPlayer(String) does: an exact match first,
+     * otherwise the shortest name starting with the given text
+     * @return the player's UUID, or null if no name matches
+     */
+    public UUID findBest(String name) {
+        Snapshot current = snapshot;
+        String prefix = name.toLowerCase(Locale.ROOT);
+        int pos = Arrays.binarySearch(current.keys, prefix);
+        if (pos >= 0) {
+            return current.uuids[pos];
+        }
+
+        UUID best = null;
+        int bestLength = Integer.MAX_VALUE;
+        for (int i = -pos - 1; i < current.keys.length && current.keys[i].startsWith(prefix); i++) {
+            int length = current.keys[i].length();
+            if (length < bestLength) {
+                best = current.uuids[i];
+                bestLength = length;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Complete online player names starting with the given text (case-insensitive)
+     * @param prefix Text typed so far
+     * @param limit Maximum number of names to return
+     * @param exclude Player to leave out (usually the one completing), may be null
+     */
+    public List<String> complete(String prefix, int limit, UUID exclude) {
+        Snapshot current = snapshot;
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int pos = Arrays.binarySearch(current.keys, key);
+        int start = pos >= 0 ? pos : -pos - 1;
+
+        List<String> completions = new ArrayList<>();
+        for (int i = start; i < current.keys.length && completions.size() < limit; i++) {
+            if (!current.keys[i].startsWith(key)) {
+                break;
+            }
+            if (!current.uuids[i].equals(exclude)) {
+                completions.add(current.names[i]);
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * Check if a player is currently in the index
+     */
+    public boolean isOnline(UUID uuid) {
+        return onlineNames.containsKey(uuid);
+    }
+
+    /**
+     * Get the UUIDs of all indexed (online) players
+     */
+    public List<UUID> getOnlinePlayers() {
+        return new ArrayList<>(onlineNames.keySet());
+    }
+
+    /**
+     * Get the display name for a player, online or not
+     * Asks Bukkit the first time an unknown player is looked up, so avoid calling it in loops on the main thread
+     * @return the name, or null if the server has never seen this player
+     */
+    public String getName(UUID uuid) {
+        String name = onlineNames.get(uuid);
+        if (name != null) {
+            return name;
+        }
+        name = offlineNames.get(uuid);
+        if (name == null) {
+            // Misses are cached too; for an unknown UUID Bukkit reads its playerdata file every time
+            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
+            name = offlinePlayer.getName();
+            offlineNames.put(uuid, name != null ? name : UNKNOWN_NAME);
+        }
+        return UNKNOWN_NAME.equals(name) ? null : name;
+    }
+
+    /**
+     * Get the name of an online player or an offline player whose name is already known,
+     * without asking Bukkit
+     * @return the name, or null if not known yet or the server has never seen this player
+     */
+    public String getResolvedName(UUID uuid) {
+        String name = onlineNames.get(uuid);
+        if (name == null) {
+            name = offlineNames.get(uuid);
+        }
+        return UNKNOWN_NAME.equals(name) ? null : name;
+    }
+
+    /**
+     * Look up the names of players not known yet; does Bukkit lookups, so call it off the main thread
+     */
+    public void resolveNames(Collection<UUID> uuids) {
+        for (UUID uuid : uuids) {
+            getName(uuid);
+        }
+    }
+
+    /**
+     * Get the number of indexed players
+     */
+    public int size() {
+        return snapshot.keys.length;
+    }
+}
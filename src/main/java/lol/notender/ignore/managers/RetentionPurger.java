@@ -0,0 +1,141 @@
+package lol.notender.ignore.managers;
+
+import lol.notender.ignore.database.DatabaseManager;
+import lol.notender.ignore.database.IgnorePair;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background job that deletes the ignore lists of players who have not been online for a
+ * configured number of days. Rows are deleted in small batches, each its own transaction,
+ * so chat lookups get the connection between batches; freed pages are then handed back with
+ * an incremental vacuum instead of a full VACUUM that would lock the database.
+ */
+public class RetentionPurger {
+
+    private final JavaPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final IgnoreManager ignoreManager;
+    private final PlayerNameIndex nameIndex;
+    private final long retentionMillis;
+    private final int batchSize;
+    private final int batchesPerRun;
+    private final int vacuumPages;
+    private final long intervalTicks;
+
+    // Only touched by the purge task
+    private boolean seeded;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder rowsPurged = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    private BukkitTask task;
+
+    public RetentionPurger(JavaPlugin plugin, DatabaseManager databaseManager, IgnoreManager ignoreManager,
+                           PlayerNameIndex nameIndex, int inactiveDays, int batchSize, int batchesPerRun,
+                           int vacuumPages, long intervalTicks) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.ignoreManager = ignoreManager;
+        this.nameIndex = nameIndex;
+        this.retentionMillis = TimeUnit.DAYS.toMillis(Math.max(1, inactiveDays));
+        this.batchSize = Math.max(1, batchSize);
+        this.batchesPerRun = Math.max(1, batchesPerRun);
+        this.vacuumPages = Math.max(1, vacuumPages);
+        this.intervalTicks = Math.max(1, intervalTicks);
+    }
+
+    /**
+     * Start purging in the background
+     */
+    public void start() {
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+                plugin, this::run, intervalTicks, intervalTicks);
+    }
+
+    /**
+     * Stop purging
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Delete up to batchesPerRun batches of expired rows, then reclaim the freed pages
+     */
+    private synchronized void run() {
+        Thread thread = Thread.currentThread();
+        int priority = thread.getPriority();
+        thread.setPriority(Thread.MIN_PRIORITY);
+        try {
+            long now = System.currentTimeMillis();
+            if (!seeded) {
+                // Owners never seen online start their retention period now
+                databaseManager.seedLastSeen(now);
+                seeded = true;
+            }
+            // last_seen is only written on join and quit; players online for longer than the
+            // retention period would otherwise look inactive and lose their list mid-session
+            databaseManager.updateLastSeen(nameIndex.getOnlinePlayers(), now);
+            runs.increment();
+
+            long cutoff = now - retentionMillis;
+            int purged = 0;
+            boolean drained = false;
+            for (int i = 0; i < batchesPerRun; i++) {
+                List<IgnorePair> batch = databaseManager.purgeInactiveIgnores(cutoff, batchSize);
+                if (batch == null) {
+                    failedBatches.increment();
+                    break;
+                }
+                if (!batch.isEmpty()) {
+                    ignoreManager.applyPurge(batch);
+                    purged += batch.size();
+                }
+                if (batch.size() < batchSize) {
+                    drained = true;
+                    break;
+                }
+            }
+
+            if (drained) {
+                databaseManager.purgeLastSeen(cutoff);
+            }
+            if (purged > 0) {
+                rowsPurged.add(purged);
+                databaseManager.incrementalVacuum(vacuumPages);
+            }
+        } finally {
+            thread.setPriority(priority);
+        }
+    }
+
+    /**
+     * Get number of purge runs
+     */
+    public long getRunCount() {
+        return runs.sum();
+    }
+
+    /**
+     * Get number of ignore rows deleted for inactivity
+     */
+    public long getRowsPurged() {
+        return rowsPurged.sum();
+    }
+
+    /**
+     * Get number of purge batches that failed
+     */
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+}
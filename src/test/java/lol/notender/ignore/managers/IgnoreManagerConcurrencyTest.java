@@ -0,0 +1,199 @@
+package lol.notender.ignore.managers;
+
+import lol.notender.ignore.audit.AuditLog;
+import lol.notender.ignore.database.DatabaseManager;
+import lol.notender.ignore.database.IgnorePair;
+import lol.notender.ignore.database.WriteQueue;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress test for the per-player atomic toggles: many threads toggle a small set of
+ * relationships at once while readers query them, then the final state, the write queue,
+ * the reverse index and the leaderboard must all agree with the sequence of toggle results.
+ */
+class IgnoreManagerConcurrencyTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int TOGGLES_PER_WRITER = 20000;
+    private static final int RELOADS_PER_WRITER = 2000;
+
+    @Test
+    void concurrentTogglesAreLinearizable() throws Exception {
+        // Empty database: every relationship starts out not ignored
+        DatabaseManager databaseManager = mock(DatabaseManager.class);
+        JavaPlugin plugin = mock(JavaPlugin.class);
+        WriteQueue writeQueue = new WriteQueue(plugin, databaseManager, 20);
+        AuditLog auditLog = new AuditLog(plugin, databaseManager, false, 16, 100, 0, 0);
+        IgnoreManager manager = new IgnoreManager(databaseManager, auditLog, writeQueue,
+                new IgnoreThrottle(5, 0.5), null);
+
+        UUID[] players = randomUUIDs(4);
+        UUID[] targets = randomUUIDs(4);
+
+        // How often each toggle of a relationship ended up ignoring / not ignoring
+        Map<IgnorePair, LongAdder> nowIgnoring = new ConcurrentHashMap<>();
+        Map<IgnorePair, LongAdder> nowNotIgnoring = new ConcurrentHashMap<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writersDone = new AtomicBoolean();
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                long seed = w;
+                writers.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    start.await();
+                    for (int i = 0; i < TOGGLES_PER_WRITER; i++) {
+                        UUID playerUUID = players[random.nextInt(players.length)];
+                        UUID targetUUID = targets[random.nextInt(targets.length)];
+                        boolean ignoring = manager.toggleIgnore(playerUUID, targetUUID);
+                        (ignoring ? nowIgnoring : nowNotIgnoring)
+                                .computeIfAbsent(new IgnorePair(playerUUID, targetUUID), key -> new LongAdder())
+                                .increment();
+                    }
+                    return null;
+                }));
+            }
+
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                long seed = 100 + r;
+                readers.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    start.await();
+                    while (!writersDone.get()) {
+                        UUID playerUUID = players[random.nextInt(players.length)];
+                        UUID targetUUID = targets[random.nextInt(targets.length)];
+                        manager.isIgnoring(playerUUID, targetUUID);
+                        // Snapshots are immutable, iterating one while writers publish new ones is safe
+                        for (UUID ignored : manager.getIgnoredPlayers(playerUUID)) {
+                            assertNotNull(ignored);
+                        }
+                        manager.filterRecipients(targetUUID, Arrays.asList(players));
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writersDone.set(true);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Map<UUID, Integer> expectedCounts = new HashMap<>();
+        for (UUID playerUUID : players) {
+            for (UUID targetUUID : targets) {
+                IgnorePair pair = new IgnorePair(playerUUID, targetUUID);
+                long on = sum(nowIgnoring.get(pair));
+                long off = sum(nowNotIgnoring.get(pair));
+                boolean ignoring = manager.isIgnoring(playerUUID, targetUUID);
+
+                // Every toggle flipped the state left by the previous one, so the results
+                // alternate true, false, true... and the last one is the final state
+                assertEquals(ignoring ? 1 : 0, on - off, "toggle results for " + pair);
+                assertEquals(ignoring, manager.getIgnoredPlayers(playerUUID).contains(targetUUID));
+                assertEquals(ignoring, manager.ignorersOf(targetUUID).contains(playerUUID));
+                if (on + off > 0) {
+                    assertEquals(ignoring, writeQueue.getPending(playerUUID, targetUUID), "queued state for " + pair);
+                }
+                if (ignoring) {
+                    expectedCounts.merge(targetUUID, 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<UUID, Integer> leaderboardCounts = new HashMap<>();
+        for (IgnoreLeaderboard.Entry entry : manager.getMostIgnored(targets.length)) {
+            leaderboardCounts.put(entry.playerUUID(), entry.count());
+        }
+        assertEquals(expectedCounts, leaderboardCounts);
+    }
+
+    @Test
+    void reloadDuringFlushKeepsQueuedChange() throws Exception {
+        // In-memory database whose reads let the queue commit between reading the rows and
+        // returning them, so a loader gets rows that miss the change the flush just dropped
+        Set<IgnorePair> rows = ConcurrentHashMap.newKeySet();
+        DatabaseManager databaseManager = mock(DatabaseManager.class);
+        JavaPlugin plugin = mock(JavaPlugin.class);
+        WriteQueue writeQueue = new WriteQueue(plugin, databaseManager, 20);
+        when(databaseManager.applyIgnoreChanges(anyList(), anyList())).thenAnswer(invocation -> {
+            List<IgnorePair> added = invocation.getArgument(0);
+            List<IgnorePair> removed = invocation.getArgument(1);
+            rows.addAll(added);
+            rows.removeAll(removed);
+            return true;
+        });
+        when(databaseManager.getIgnoredPlayers(any(UUID.class))).thenAnswer(invocation -> {
+            UUID playerUUID = invocation.getArgument(0);
+            Set<UUID> stored = new HashSet<>();
+            for (IgnorePair pair : rows) {
+                if (pair.playerUUID().equals(playerUUID)) {
+                    stored.add(pair.ignoredUUID());
+                }
+            }
+            writeQueue.flush();
+            return stored;
+        });
+        AuditLog auditLog = new AuditLog(plugin, databaseManager, false, 16, 100, 0, 0);
+        IgnoreManager manager = new IgnoreManager(databaseManager, auditLog, writeQueue,
+                new IgnoreThrottle(5, 0.5), null);
+
+        // Each writer toggles, quits and rejoins its own player, with nothing flushed in between
+        UUID targetUUID = UUID.randomUUID();
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (UUID playerUUID : randomUUIDs(WRITERS)) {
+                writers.add(pool.submit(() -> {
+                    boolean expected = false;
+                    for (int i = 0; i < RELOADS_PER_WRITER; i++) {
+                        expected = manager.toggleIgnore(playerUUID, targetUUID);
+                        manager.removeFromCache(playerUUID);
+                        manager.loadPlayerIgnoreData(playerUUID);
+                        assertEquals(expected, manager.isIgnoring(playerUUID, targetUUID), "state after rejoin " + i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long sum(LongAdder adder) {
+        return adder != null ? adder.sum() : 0;
+    }
+
+    private static UUID[] randomUUIDs(int count) {
+        UUID[] uuids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            uuids[i] = UUID.randomUUID();
+        }
+        return uuids;
+    }
+}